@@ -0,0 +1,93 @@
+package com.patrones.api.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autenticación de un bearer token RS256 repetido: verificación completa en
+ * cada petición (JwtAuthenticationProvider, como antes) frente a
+ * CachingJwtAuthenticationManager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtAuthenticationCacheBenchmark {
+
+	private AuthenticationManager uncached;
+	private AuthenticationManager cached;
+	private String token;
+
+	@Setup
+	public void setUp() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keys = generator.generateKeyPair();
+
+		Instant now = Instant.now();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.subject("3f1c2a9e-0000-4000-8000-000000000001")
+				.issuer("http://keycloak:8080/realms/Ecommerce")
+				.issueTime(Date.from(now))
+				.expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+				.claim("realm_access", Map.of("roles", List.of("offline_access", "uma_authorization", "user")))
+				.claim("resource_access", Map.of("backend-client", Map.of("roles", List.of("admin", "user"))))
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+		jwt.sign(new RSASSASigner(keys.getPrivate()));
+		token = jwt.serialize();
+
+		NimbusJwtDecoder decoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keys.getPublic()).build();
+		JwtAuthenticationConverter converter = new SecurityConfig().jwtAuthenticationConverter();
+
+		JwtAuthenticationProvider provider = new JwtAuthenticationProvider(decoder);
+		provider.setJwtAuthenticationConverter(converter);
+		uncached = provider::authenticate;
+		cached = new CachingJwtAuthenticationManager(decoder, converter, new SimpleMeterRegistry(),
+				10_000, Duration.ofMinutes(5));
+	}
+
+	@Benchmark
+	public Authentication uncached() {
+		return uncached.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+
+	@Benchmark
+	public Authentication cached() {
+		return cached.authenticate(new BearerTokenAuthenticationToken(token));
+	}
+}
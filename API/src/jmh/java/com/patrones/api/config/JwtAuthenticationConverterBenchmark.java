@@ -0,0 +1,59 @@
+package com.patrones.api.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracción de roles (realm_access y resource_access.backend-client) de un
+ * JWT de Keycloak ya decodificado, tal como la hace el filtro en cada petición.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationConverterBenchmark {
+
+	private JwtAuthenticationConverter converter;
+	private Jwt jwt;
+
+	@Setup
+	public void setUp() {
+		converter = new SecurityConfig().jwtAuthenticationConverter();
+		Instant now = Instant.now();
+		jwt = Jwt.withTokenValue("token")
+				.header("alg", "RS256")
+				.subject("3f1c2a9e-0000-4000-8000-000000000001")
+				.issuer("http://keycloak:8080/realms/Ecommerce")
+				.issuedAt(now)
+				.expiresAt(now.plusSeconds(300))
+				.claim("realm_access", Map.of("roles",
+						List.of("default-roles-Ecommerce", "offline_access", "uma_authorization", "user")))
+				.claim("resource_access", Map.of(
+						"backend-client", Map.of("roles", List.of("admin", "user")),
+						"account", Map.of("roles", List.of("manage-account", "view-profile"))))
+				.build();
+	}
+
+	@Benchmark
+	public AbstractAuthenticationToken convert() {
+		return converter.convert(jwt);
+	}
+}
@@ -0,0 +1,93 @@
+package com.patrones.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patrones.api.dto.CommentDTO;
+import com.patrones.api.dto.ProductDTO;
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.repository.ProductRepository.ProductSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Página del catálogo: ProductSummary → ProductDTO (con la vista previa de
+ * comentarios) y serialización de la lista con Jackson, configurado como en
+ * Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductDtoBenchmark {
+
+	private static final int COMMENTS_PER_PRODUCT = 3;
+
+	@Param({"20", "100"})
+	int pageSize;
+
+	private final ProductController controller = new ProductController();
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private List<ProductSummary> products;
+	private List<CommentDTO> comments;
+	private List<ProductDTO> dtos;
+
+	@Setup
+	public void setUp() {
+		LocalDateTime createdAt = LocalDateTime.of(2025, 10, 14, 8, 23, 1);
+		products = new ArrayList<>();
+		for (long id = 1; id <= pageSize; id++) {
+			products.add(new Summary(id, "Producto " + id, "Descripción del producto " + id + " con algo de texto",
+					19.99 + id, "image/webp", 48_000L + id, ImageStatus.CLEAN, COMMENTS_PER_PRODUCT, createdAt));
+		}
+		comments = new ArrayList<>();
+		for (long id = 1; id <= COMMENTS_PER_PRODUCT; id++) {
+			CommentDTO comment = new CommentDTO();
+			comment.setId(id);
+			comment.setContent("Muy buen producto, llegó a tiempo " + id);
+			comment.setAuthor("cliente" + id);
+			comment.setCreatedAt(createdAt);
+			comments.add(comment);
+		}
+		dtos = convert();
+	}
+
+	@Benchmark
+	public List<ProductDTO> convert() {
+		List<ProductDTO> result = new ArrayList<>(products.size());
+		for (ProductSummary product : products) {
+			result.add(controller.convertToDTO(product, comments));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		return objectMapper.writeValueAsBytes(dtos);
+	}
+
+	@Benchmark
+	public byte[] convertAndSerialize() throws Exception {
+		return objectMapper.writeValueAsBytes(convert());
+	}
+
+	private record Summary(Long getId, String getName, String getDescription, Double getPrice,
+						   String getImageType, Long getImageSize, ImageStatus getImageStatus,
+						   Integer getCommentCount, LocalDateTime getCreatedAt) implements ProductSummary {
+	}
+}
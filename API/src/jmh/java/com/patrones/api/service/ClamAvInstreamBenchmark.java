@@ -0,0 +1,156 @@
+package com.patrones.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envío INSTREAM por una sesión persistente del pool de ClamAvClient contra
+ * un clamd falso en local que descarta los datos y responde OK: mide el
+ * troceado en tramas y el protocolo, no el motor de ClamAV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClamAvInstreamBenchmark {
+
+	@Param({"16384", "524288", "5242880"})
+	int size;
+
+	@Param({"65536"})
+	int chunkSize;
+
+	private FakeClamd clamd;
+	private ClamAvClient client;
+	private byte[] image;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		clamd = new FakeClamd();
+		client = new ClamAvClient("127.0.0.1", clamd.port(), 4, 1000, 5000, 10_000, chunkSize, 5, 30_000);
+		image = new byte[size];
+		new Random(42).nextBytes(image);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		client.close();
+		clamd.close();
+	}
+
+	@Benchmark
+	public String scan() throws IOException {
+		return client.scan(image);
+	}
+
+	// -----------------------------
+	// clamd falso: IDSESSION, INSTREAM (descarta las tramas), PING y END
+	// -----------------------------
+	private static final class FakeClamd implements AutoCloseable {
+
+		private final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+		FakeClamd() throws IOException {
+			Thread acceptor = new Thread(this::acceptLoop, "fake-clamd");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int port() {
+			return server.getLocalPort();
+		}
+
+		private void acceptLoop() {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					Thread handler = new Thread(() -> handle(socket), "fake-clamd-session");
+					handler.setDaemon(true);
+					handler.start();
+				} catch (IOException e) {
+					return;
+				}
+			}
+		}
+
+		private void handle(Socket socket) {
+			try (socket) {
+				socket.setTcpNoDelay(true);
+				DataInputStream in = new DataInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				byte[] sink = new byte[64 * 1024];
+				int id = 0;
+				String command;
+				while ((command = readCommand(in)) != null) {
+					switch (command) {
+						case "zIDSESSION" -> { }
+						case "zINSTREAM" -> {
+							int length;
+							while ((length = in.readInt()) > 0) {
+								while (length > 0) {
+									int read = in.read(sink, 0, Math.min(length, sink.length));
+									if (read < 0) {
+										return;
+									}
+									length -= read;
+								}
+							}
+							reply(out, ++id, "stream: OK");
+						}
+						case "zPING" -> reply(out, ++id, "PONG");
+						default -> {
+							return;
+						}
+					}
+				}
+			} catch (IOException e) {
+				// Sesión cerrada por el cliente
+			}
+		}
+
+		private static String readCommand(DataInputStream in) throws IOException {
+			StringBuilder command = new StringBuilder();
+			int b;
+			while ((b = in.read()) != 0) {
+				if (b == -1) {
+					return null;
+				}
+				command.append((char) b);
+			}
+			return command.toString();
+		}
+
+		private static void reply(OutputStream out, int id, String reply) throws IOException {
+			out.write((id + ": " + reply + "\0").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.patrones.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cleanInput y cleanParameters con textos de distinto tamaño: texto plano
+ * (camino de una pasada de InputScanner) y texto con marcado o patrones
+ * (regex + Jsoup).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityServiceBenchmark {
+
+	private static final String PLAIN = "Zapatillas de running para montaña, talla 42 \"edición 3/4\" ";
+	private static final String MARKUP = "<b>Oferta</b> it's SELECT <script>alert(1)</script> & más ";
+
+	@Param({"16", "256", "4096"})
+	int size;
+
+	@Param({"plain", "markup"})
+	String kind;
+
+	private final SecurityService service = new SecurityService();
+	private String input;
+	private Map<String, String> parameters;
+
+	@Setup
+	public void setUp() {
+		input = repeat("plain".equals(kind) ? PLAIN : MARKUP, size);
+		parameters = new LinkedHashMap<>();
+		for (int i = 0; i < 8; i++) {
+			parameters.put("campo" + i, input);
+		}
+	}
+
+	@Benchmark
+	public String cleanInput() {
+		return service.cleanInput(input);
+	}
+
+	@Benchmark
+	public Map<String, String> cleanParameters() {
+		return service.cleanParameters(parameters);
+	}
+
+	private static String repeat(String text, int length) {
+		StringBuilder builder = new StringBuilder(length);
+		while (builder.length() < length) {
+			builder.append(text);
+		}
+		return builder.substring(0, length);
+	}
+}
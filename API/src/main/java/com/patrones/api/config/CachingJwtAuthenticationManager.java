@@ -0,0 +1,110 @@
+package com.patrones.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.patrones.api.service.ContentHash;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Autenticación de la cadena protegida con caché de tokens ya verificados.
+ * <p>
+ * El frontend envía el mismo access token durante minutos; sin caché cada
+ * petición vuelve a comprobar la firma RS256 y a construir las authorities
+ * desde realm_access y resource_access. Aquí el token se identifica por el
+ * SHA-256 del valor en bruto y se guardan el Jwt decodificado y sus
+ * authorities hasta su exp (como mucho {@code maxTtl}, para acotar cuánto se
+ * sigue aceptando un token firmado con una clave ya retirada del JWKS).
+ * Los tokens sin exp y los rechazados no se guardan.
+ * <p>
+ * En cada acierto se vuelven a comprobar exp y nbf (nbf con el mismo margen
+ * de reloj que JwtTimestampValidator); la firma, el emisor y las authorities
+ * se confían a la primera validación.
+ * <p>
+ * Cada acierto devuelve un JwtAuthenticationToken nuevo con los detalles de
+ * la petición actual; solo se comparten el Jwt y las authorities, que son
+ * inmutables. Métricas en /actuator/metrics con el nombre security.jwt.
+ */
+public class CachingJwtAuthenticationManager implements AuthenticationManager {
+
+    // Margen por defecto de JwtTimestampValidator
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+
+    private final JwtAuthenticationProvider provider;
+    private final Cache<String, Verified> verified;
+    private final Duration maxTtl;
+
+    private record Verified(Jwt jwt, Collection<GrantedAuthority> authorities, String name) {}
+
+    public CachingJwtAuthenticationManager(JwtDecoder jwtDecoder,
+                                           JwtAuthenticationConverter converter,
+                                           MeterRegistry meterRegistry,
+                                           long maxEntries,
+                                           Duration maxTtl) {
+        this.provider = new JwtAuthenticationProvider(jwtDecoder);
+        this.provider.setJwtAuthenticationConverter(converter);
+        this.maxTtl = maxTtl;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(Expiry.<String, Verified>creating((key, value) -> timeToLive(value.jwt())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "security.jwt");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        BearerTokenAuthenticationToken bearer = (BearerTokenAuthenticationToken) authentication;
+        String key = ContentHash.sha256Hex(bearer.getToken().getBytes(StandardCharsets.US_ASCII));
+
+        Verified cached = verified.getIfPresent(key);
+        if (cached != null && isCurrent(cached.jwt(), Instant.now())) {
+            JwtAuthenticationToken token = new JwtAuthenticationToken(cached.jwt(), cached.authorities(), cached.name());
+            token.setDetails(bearer.getDetails());
+            return token;
+        }
+
+        // Firma, claims (exp, nbf, iss) y authorities como siempre; lanza si el token no es válido
+        Authentication result = provider.authenticate(bearer);
+        if (result instanceof JwtAuthenticationToken token && !timeToLive(token.getToken()).isZero()) {
+            verified.put(key, new Verified(token.getToken(), token.getAuthorities(), token.getName()));
+        }
+        return result;
+    }
+
+    private static boolean isCurrent(Jwt jwt, Instant now) {
+        Instant notBefore = jwt.getNotBefore();
+        if (notBefore != null && notBefore.isAfter(now.plus(CLOCK_SKEW))) {
+            return false;
+        }
+        return jwt.getExpiresAt().isAfter(now);
+    }
+
+    private Duration timeToLive(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return Duration.ZERO;
+        }
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl;
+    }
+}
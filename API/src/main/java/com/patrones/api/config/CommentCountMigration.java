@@ -0,0 +1,36 @@
+package com.patrones.api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalcula products.comment_count al arrancar: rellena la columna en bases
+ * de datos existentes y corrige cualquier desviación del contador.
+ */
+@Component
+public class CommentCountMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentCountMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CommentCountMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int updated = jdbcTemplate.update(
+                "UPDATE products p SET comment_count = counts.total " +
+                "FROM (SELECT p2.id, COUNT(c.id) AS total FROM products p2 " +
+                "      LEFT JOIN comments c ON c.product_id = p2.id GROUP BY p2.id) counts " +
+                "WHERE counts.id = p.id AND p.comment_count IS DISTINCT FROM counts.total");
+        if (updated > 0) {
+            log.info("Contador de comentarios corregido en {} productos", updated);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.patrones.api.config;
+
+import com.patrones.api.service.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Migración al arrancar de las imágenes guardadas como bytea hacia el
+ * almacén de imágenes (direccionado por SHA-256):
+ * <ul>
+ *   <li>products.image_data (esquema original) y la tabla product_images.</li>
+ *   <li>product_image_variants.data.</li>
+ *   <li>client_data.imagen.</li>
+ * </ul>
+ * Las filas se copian de una en una para no cargar todos los blobs en memoria;
+ * la columna o tabla antigua se elimina cuando se han copiado todas. Cada paso
+ * es idempotente y no hace nada si ya se aplicó.
+ */
+@Component
+public class ImageMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStorage imageStorage;
+
+    public ImageMigration(JdbcTemplate jdbcTemplate, ImageStorage imageStorage) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageStorage = imageStorage;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (columnExists("products", "image_data")) {
+            moveToStorage("products", "id", "image_data", (id, data) -> jdbcTemplate.update(
+                    "UPDATE products SET image_sha256 = ?, image_size = ? WHERE id = ?",
+                    imageStorage.put(data), (long) data.length, id));
+            jdbcTemplate.execute("ALTER TABLE products DROP COLUMN image_data");
+        }
+
+        if (tableExists("product_images")) {
+            moveToStorage("product_images", "product_id", "data", (id, data) -> jdbcTemplate.update(
+                    "UPDATE products SET image_sha256 = ?, image_size = ? WHERE id = ?",
+                    imageStorage.put(data), (long) data.length, id));
+            jdbcTemplate.execute("DROP TABLE product_images");
+        }
+
+        if (columnExists("product_image_variants", "data")) {
+            moveToStorage("product_image_variants", "id", "data", (id, data) -> jdbcTemplate.update(
+                    "UPDATE product_image_variants SET sha256 = ? WHERE id = ?",
+                    imageStorage.put(data), id));
+            jdbcTemplate.execute("ALTER TABLE product_image_variants DROP COLUMN data");
+        }
+
+        if (columnExists("client_data", "imagen")) {
+            moveToStorage("client_data", "id", "imagen", (id, data) -> jdbcTemplate.update(
+                    "UPDATE client_data SET imagen_sha256 = ?, " +
+                    "imagen_updated_at = COALESCE(imagen_updated_at, now()) WHERE id = ?",
+                    imageStorage.put(data), id));
+            jdbcTemplate.execute("ALTER TABLE client_data DROP COLUMN imagen");
+        }
+    }
+
+    /**
+     * Copia al almacén cada blob no nulo de la columna y deja que el callback
+     * actualice la fila con el hash resultante.
+     */
+    private void moveToStorage(String table, String idColumn, String dataColumn, BiConsumer<Long, byte[]> onStored) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT " + idColumn + " FROM " + table + " WHERE " + dataColumn + " IS NOT NULL",
+                Long.class);
+        for (Long id : ids) {
+            byte[] data = jdbcTemplate.queryForObject(
+                    "SELECT " + dataColumn + " FROM " + table + " WHERE " + idColumn + " = ?",
+                    byte[].class, id);
+            if (data != null) {
+                onStored.accept(id, data);
+            }
+        }
+        log.info("Migradas {} imágenes de {}.{} al almacén de imágenes", ids.size(), table, dataColumn);
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = ?",
+                Integer.class, table);
+        return count != null && count > 0;
+    }
+}
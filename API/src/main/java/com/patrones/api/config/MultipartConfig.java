@@ -0,0 +1,90 @@
+package com.patrones.api.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.List;
+
+/**
+ * Límites de subida por ruta. Tomcat solo admite un límite multipart por
+ * servlet, así que el del contenedor es el de la importación masiva
+ * (products.import.max-*) y el resolver aplica spring.servlet.multipart
+ * (10MB por fichero, 15MB por petición) a todas las demás rutas. La
+ * petición se rechaza por su Content-Length antes de leer el cuerpo, de modo
+ * que fuera de la importación nunca se reciben más de 15MB.
+ */
+@Configuration
+public class MultipartConfig {
+
+    public static final String IMPORT_PATH = "/api/products/import";
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+            MultipartProperties properties,
+            @Value("${products.import.max-file-size:512MB}") DataSize importMaxFileSize,
+            @Value("${products.import.max-request-size:520MB}") DataSize importMaxRequestSize) {
+        MultipartConfigElement defaults = properties.createMultipartConfig();
+        return new MultipartConfigElement(defaults.getLocation(), importMaxFileSize.toBytes(),
+                importMaxRequestSize.toBytes(), defaults.getFileSizeThreshold());
+    }
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(MultipartProperties properties) {
+        RouteLimitedMultipartResolver resolver = new RouteLimitedMultipartResolver(
+                properties.getMaxFileSize().toBytes(), properties.getMaxRequestSize().toBytes());
+        resolver.setResolveLazily(properties.isResolveLazily());
+        return resolver;
+    }
+
+    static class RouteLimitedMultipartResolver extends StandardServletMultipartResolver {
+
+        private final long maxFileSize;
+        private final long maxRequestSize;
+
+        RouteLimitedMultipartResolver(long maxFileSize, long maxRequestSize) {
+            this.maxFileSize = maxFileSize;
+            this.maxRequestSize = maxRequestSize;
+        }
+
+        @Override
+        public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+            if (isImport(request)) {
+                return super.resolveMultipart(request);
+            }
+
+            // Sin Content-Length (chunked) no se puede acotar antes de leer: se rechaza igual
+            long length = request.getContentLengthLong();
+            if (length < 0 || length > maxRequestSize) {
+                throw new MaxUploadSizeExceededException(maxRequestSize);
+            }
+
+            MultipartHttpServletRequest multipart = super.resolveMultipart(request);
+            for (List<MultipartFile> files : multipart.getMultiFileMap().values()) {
+                for (MultipartFile file : files) {
+                    if (file.getSize() > maxFileSize) {
+                        cleanupMultipart(multipart);
+                        throw new MaxUploadSizeExceededException(maxFileSize);
+                    }
+                }
+            }
+            return multipart;
+        }
+
+        private static boolean isImport(HttpServletRequest request) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            return IMPORT_PATH.equals(path);
+        }
+    }
+}
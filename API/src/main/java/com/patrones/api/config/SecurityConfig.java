@@ -1,9 +1,12 @@
 package com.patrones.api.config;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -43,6 +46,15 @@ public class SecurityConfig {
     private static final String[] CLIENTDATA_PATHS = {"/api/client-data", "/api/client-data/**"};
     private static final String[] PAYMENT_PATHS = {"/api/payments", "/api/payments/**"};
 
+    // ----------------------------
+    // Caché de tokens verificados (ver CachingJwtAuthenticationManager)
+    // ----------------------------
+    @Value("${security.jwt.cache.max-entries:10000}")
+    private long jwtCacheMaxEntries;
+
+    @Value("${security.jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
     // =============================
     // Public filter chain
     // =============================
@@ -64,7 +76,12 @@ public class SecurityConfig {
     // =============================
     @Bean
     @Order(2)
-    public SecurityFilterChain protectedFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain protectedFilterChain(HttpSecurity http,
+                                                    JwtDecoder jwtDecoder,
+                                                    MeterRegistry meterRegistry) throws Exception {
+        CachingJwtAuthenticationManager jwtAuthenticationManager = new CachingJwtAuthenticationManager(
+                jwtDecoder, jwtAuthenticationConverter(), meterRegistry, jwtCacheMaxEntries, jwtCacheMaxTtl);
+
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -80,7 +97,7 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             )
             .oauth2ResourceServer(oauth2 -> oauth2
-                .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+                .jwt(jwt -> jwt.authenticationManager(jwtAuthenticationManager))
             )
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
@@ -123,8 +140,10 @@ public class SecurityConfig {
             "https://frontend:5173"
         ));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH", "HEAD"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With"));
-        config.setExposedHeaders(List.of("Authorization", "Content-Type", "Content-Length"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-Requested-With",
+            "If-None-Match", "If-Modified-Since", "Range"));
+        config.setExposedHeaders(List.of("Authorization", "Content-Type", "Content-Length",
+            "ETag", "Last-Modified", "Accept-Ranges", "Content-Range"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
@@ -0,0 +1,68 @@
+package com.patrones.api.config;
+
+import com.patrones.api.service.ImageReferences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Añade al arrancar la FK product_image_variants.product_id → products.id
+ * (ON DELETE CASCADE), que ddl-auto no crea porque la entidad guarda el id
+ * suelto. Con ella, una variante generada en segundo plano para un producto
+ * que se acaba de eliminar falla al insertarse en lugar de quedar huérfana.
+ * Antes se eliminan las variantes huérfanas que ya existan y se liberan sus
+ * imágenes. Idempotente: no hace nada si la restricción ya existe.
+ */
+@Component
+public class VariantForeignKeyMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(VariantForeignKeyMigration.class);
+
+    private static final String CONSTRAINT = "fk_product_image_variants_product";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageReferences imageReferences;
+
+    public VariantForeignKeyMigration(JdbcTemplate jdbcTemplate, ImageReferences imageReferences) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageReferences = imageReferences;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (constraintExists()) {
+            return;
+        }
+
+        List<String> orphaned = jdbcTemplate.queryForList(
+                "DELETE FROM product_image_variants v " +
+                "WHERE NOT EXISTS (SELECT 1 FROM products p WHERE p.id = v.product_id) RETURNING v.sha256",
+                String.class);
+        if (!orphaned.isEmpty()) {
+            log.info("Eliminadas {} variantes de productos que ya no existen", orphaned.size());
+            imageReferences.releaseAfterCommit(orphaned);
+        }
+
+        try {
+            jdbcTemplate.execute("ALTER TABLE product_image_variants ADD CONSTRAINT " + CONSTRAINT +
+                    " FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE");
+        } catch (DataAccessException e) {
+            // Una variante huérfana insertada entre la limpieza y el ALTER: se reintenta al reiniciar
+            log.warn("No se pudo añadir la FK de product_image_variants: {}", e.getMessage());
+        }
+    }
+
+    private boolean constraintExists() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.table_constraints " +
+                "WHERE table_name = 'product_image_variants' AND constraint_name = ?",
+                Integer.class, CONSTRAINT);
+        return count != null && count > 0;
+    }
+}
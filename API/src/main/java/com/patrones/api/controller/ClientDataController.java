@@ -2,29 +2,47 @@ package com.patrones.api.controller;
 
 import com.patrones.api.dto.ClientDataDTO;
 import com.patrones.api.entity.ClientData;
+import com.patrones.api.entity.ImageStatus;
 import com.patrones.api.repository.ClientDataRepository;
+import com.patrones.api.service.ClientDataService;
+import com.patrones.api.service.ImageStorage;
 import com.patrones.api.service.ImageValidationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/client-data")
 @CrossOrigin(origins = "*")
 public class ClientDataController {
 
+    private static final Logger log = LoggerFactory.getLogger(ClientDataController.class);
+
     @Autowired
     private ClientDataRepository clientDataRepository;
 
     @Autowired
     private ImageValidationService imageValidationService;
 
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ClientDataService clientDataService;
+
     /**
      * 🔍 Obtener datos por UID o crearlos si no existen
      */
@@ -69,97 +87,122 @@ public class ClientDataController {
      * 📤 Crear nuevo registro de cliente (imagen opcional)
      */
     @PostMapping(consumes = {"multipart/form-data"})
-    public ResponseEntity<?> createClientData(
+    public CompletableFuture<ResponseEntity<?>> createClientData(
             @RequestPart("correo") String correo,
             @RequestPart(value = "imagen", required = false) MultipartFile imagen,
             @RequestPart("usoCodigoDescuento") boolean usoCodigoDescuento,
             @AuthenticationPrincipal Jwt jwt) {
 
-        try {
-            String uid = jwt.getClaimAsString("sub");
-            byte[] imageBytes = null;
-
-            if (imagen != null && !imagen.isEmpty()) {
-                imageValidationService.validateImage(imagen);
-                imageBytes = imagen.getBytes();
-            }
-
-            ClientData entity = new ClientData();
-            entity.setUid(uid);
-            entity.setCorreo(correo);
-            entity.setImagen(imageBytes);
-            entity.setUsoCodigoDescuento(usoCodigoDescuento);
-
-            ClientData saved = clientDataRepository.save(entity);
-            return ResponseEntity.ok(convertToDTO(saved));
-
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error al leer la imagen: " + e.getMessage());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error creando ClientData: " + e.getMessage());
-        }
+        String uid = jwt.getClaimAsString("sub");
+
+        // El escaneo no ocupa el hilo de Tomcat; el guardado sigue en el hilo del escaneo
+        return imageValidationService.validateImageAsync(imagen)
+                .<ResponseEntity<?>>thenApply(imageStatus -> {
+                    try {
+                        byte[] imageBytes = null;
+                        if (imagen != null && !imagen.isEmpty()) {
+                            imageBytes = imagen.getBytes();
+                        }
+
+                        ClientData entity = new ClientData();
+                        entity.setUid(uid);
+                        entity.setCorreo(correo);
+                        entity.setUsoCodigoDescuento(usoCodigoDescuento);
+
+                        ClientData saved = clientDataService.saveWithImage(entity, imageBytes, imageStatus);
+                        return ResponseEntity.ok(convertToDTO(saved));
+                    } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error al leer la imagen: " + e.getMessage());
+                    }
+                })
+                .exceptionally(error -> failed("Error creando ClientData", unwrap(error)));
     }
 
     /**
      * 🖼️ Actualizar imagen de cliente existente
      */
     @PutMapping(value = "/{uid}/image", consumes = {"multipart/form-data"})
-    public ResponseEntity<?> updateClientImage(
+    public CompletableFuture<ResponseEntity<?>> updateClientImage(
             @PathVariable String uid,
             @RequestPart("imagen") MultipartFile imagen,
             @AuthenticationPrincipal Jwt jwt) {
 
-        try {
-            String tokenUid = jwt.getClaimAsString("sub");
-            if (!tokenUid.equals(uid)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body("No autorizado para modificar este usuario.");
-            }
-
-            ClientData client = clientDataRepository.findByUid(uid)
-                    .stream().findFirst()
-                    .orElseThrow(() -> new RuntimeException("Cliente no encontrado."));
+        String tokenUid = jwt.getClaimAsString("sub");
+        if (!tokenUid.equals(uid)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("No autorizado para modificar este usuario."));
+        }
 
-            if (imagen == null || imagen.isEmpty()) {
-                return ResponseEntity.badRequest().body("Debe enviar una imagen válida.");
-            }
+        Optional<ClientData> existing = clientDataRepository.findByUid(uid).stream().findFirst();
+        if (existing.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Cliente no encontrado."));
+        }
 
-            imageValidationService.validateImage(imagen);
-            client.setImagen(imagen.getBytes());
-            clientDataRepository.save(client);
+        if (imagen == null || imagen.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Debe enviar una imagen válida."));
+        }
 
-            return ResponseEntity.ok("✅ Imagen actualizada correctamente.");
+        ClientData client = existing.get();
+        return imageValidationService.validateImageAsync(imagen)
+                .<ResponseEntity<?>>thenApply(imageStatus -> {
+                    try {
+                        clientDataService.saveWithImage(client, imagen.getBytes(), imageStatus);
+
+                        return ResponseEntity.ok("✅ Imagen actualizada correctamente.");
+                    } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error al procesar la imagen: " + e.getMessage());
+                    }
+                })
+                .exceptionally(error -> failed("Error al actualizar la imagen", unwrap(error)));
+    }
 
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error al procesar la imagen: " + e.getMessage());
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(e.getMessage());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error al actualizar la imagen: " + e.getMessage());
+    /**
+     * Respuesta de error de las subidas asíncronas. Los 4xx de validación son
+     * rechazos esperados; solo los fallos del servidor se registran.
+     */
+    private static ResponseEntity<?> failed(String message, Throwable cause) {
+        if (cause instanceof ResponseStatusException e) {
+            if (e.getStatusCode().is5xxServerError()) {
+                log.error("{}: {}", message, e.getReason(), e);
+            }
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         }
+        log.error(message, cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(message + ": " + cause.getMessage());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
      * 📸 Obtener imagen de perfil (si existe)
      */
     @GetMapping("/{uid}/image")
-    public ResponseEntity<byte[]> getClientImage(@PathVariable String uid) {
-        Optional<ClientData> opt = clientDataRepository.findByUid(uid).stream().findFirst();
+    public ResponseEntity<Resource> getClientImage(@PathVariable String uid, WebRequest request) {
+        // Solo metadatos: si el ETag coincide respondemos 304 sin abrir la imagen
+        ClientDataRepository.ImageMetadata metadata = clientDataRepository.findImageMetadataByUid(uid)
+                .filter(m -> m.getImagenSha256() != null)
+                .filter(m -> m.getImagenStatus() != ImageStatus.PENDING_SCAN) // En cuarentena: oculta
+                .orElse(null);
+        if (metadata == null) {
+            return ResponseEntity.notFound().build();
+        }
 
-        if (opt.isPresent() && opt.get().getImagen() != null) {
-            return ResponseEntity.ok()
-                    .contentType(MediaType.IMAGE_JPEG)
-                    .body(opt.get().getImagen());
+        ResponseEntity<Resource> notModified = ImageResponses.notModified(
+                request, metadata.getImagenSha256(), metadata.getImagenUpdatedAt(), ImageResponses.REVALIDATE);
+        if (notModified != null) {
+            return notModified;
         }
 
-        return ResponseEntity.notFound().build();
+        return imageStorage.get(metadata.getImagenSha256())
+                .map(image -> ImageResponses.ok(image, MediaType.IMAGE_JPEG_VALUE, metadata.getImagenSha256(),
+                        metadata.getImagenUpdatedAt(), ImageResponses.REVALIDATE, request))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -170,7 +213,8 @@ public class ClientDataController {
         dto.setId(entity.getId());
         dto.setUid(entity.getUid());
         dto.setCorreo(entity.getCorreo());
-        dto.setImagen(entity.getImagen());
+        boolean visible = entity.getImagenSha256() != null && entity.getImagenStatus() != ImageStatus.PENDING_SCAN;
+        dto.setImagen(visible ? "/api/client-data/" + entity.getUid() + "/image" : null);
         dto.setUsoCodigoDescuento(entity.isUsoCodigoDescuento());
         return dto;
     }
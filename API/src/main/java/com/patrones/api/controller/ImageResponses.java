@@ -0,0 +1,128 @@
+package com.patrones.api.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de respuestas de imagen cacheables (ETag fuerte por SHA-256,
+ * Last-Modified, Cache-Control). El cuerpo se devuelve como Resource para que
+ * Spring MVC atienda las peticiones Range (206) automáticamente.
+ * <p>
+ * Si la imagen es un fichero en disco y el conector de Tomcat admite sendfile,
+ * las peticiones GET completas se delegan a Tomcat, que copia el fichero al
+ * socket con FileChannel.transferTo: los bytes no pasan por el heap.
+ */
+final class ImageResponses {
+
+    // Atributos de petición con los que Tomcat activa sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Imágenes de producto: no cambian nunca para un mismo id
+    static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    // Original servido en lugar de una variante aún no generada
+    static final CacheControl SHORT_LIVED = CacheControl.maxAge(1, TimeUnit.MINUTES).cachePublic();
+
+    // Imágenes de perfil: la URL se reutiliza al actualizar, se revalida con ETag
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ImageResponses() {}
+
+    static String etag(String sha256) {
+        return "\"" + sha256 + "\"";
+    }
+
+    static long lastModifiedMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    /**
+     * Evalúa If-None-Match / If-Modified-Since antes de cargar el blob.
+     * Devuelve una respuesta 304 si el cliente ya tiene la versión actual, o null.
+     */
+    static ResponseEntity<Resource> notModified(WebRequest request, String sha256,
+                                                LocalDateTime lastModified, CacheControl cacheControl) {
+        if (sha256 == null) {
+            return null;
+        }
+        if (request.checkNotModified(etag(sha256), lastModifiedMillis(lastModified))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return null;
+    }
+
+    static ResponseEntity<Resource> ok(Resource body, String contentType, String sha256,
+                                       LocalDateTime lastModified, CacheControl cacheControl,
+                                       WebRequest request) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(parseMediaType(contentType))
+                .eTag(etag(sha256))
+                .cacheControl(cacheControl)
+                .header("Accept-Ranges", "bytes");
+        if (lastModified != null) {
+            builder.lastModified(lastModifiedMillis(lastModified));
+        }
+
+        HttpServletRequest servletRequest = request instanceof NativeWebRequest nativeRequest
+                ? nativeRequest.getNativeRequest(HttpServletRequest.class)
+                : null;
+        File file = sendfileCandidate(body, servletRequest);
+        if (file != null) {
+            // Sin cuerpo: Tomcat envía el fichero al confirmar la respuesta
+            long length = file.length();
+            servletRequest.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            servletRequest.setAttribute(SENDFILE_START, 0L);
+            servletRequest.setAttribute(SENDFILE_END, length);
+            return builder.contentLength(length).build();
+        }
+        return builder.body(body);
+    }
+
+    /**
+     * Fichero a enviar con sendfile, o null si hay que escribir el cuerpo
+     * desde Java (otro contenedor, imagen en BD o petición Range, que
+     * resuelve Spring con ResourceRegion).
+     */
+    private static File sendfileCandidate(Resource body, HttpServletRequest servletRequest) {
+        if (servletRequest == null
+                || !Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORT))
+                || !"GET".equals(servletRequest.getMethod())
+                || servletRequest.getHeader(HttpHeaders.RANGE) != null
+                || !body.isFile()) {
+            return null;
+        }
+        try {
+            return body.getFile();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static MediaType parseMediaType(String contentType) {
+        if (contentType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
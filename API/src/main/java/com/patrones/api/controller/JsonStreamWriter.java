@@ -0,0 +1,72 @@
+package com.patrones.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.http.MediaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escribe elementos uno a uno en la respuesta, como arreglo JSON o como
+ * NDJSON (un objeto por línea), sin acumular la lista completa en memoria.
+ */
+final class JsonStreamWriter implements Closeable {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final OutputStream out;
+    private final SequenceWriter writer;
+    private final boolean ndjson;
+    private long written;
+
+    JsonStreamWriter(ObjectMapper objectMapper, OutputStream out, boolean ndjson) throws IOException {
+        this.out = out;
+        this.ndjson = ndjson;
+        // El stream de la respuesta lo cierra el contenedor, no Jackson
+        ObjectWriter base = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.writer = ndjson
+                ? base.withRootValueSeparator("\n").writeValues(out)
+                : base.writeValuesAsArray(out);
+    }
+
+    /**
+     * Interpreta el parámetro ?format=json|ndjson.
+     * @throws IllegalArgumentException si el formato no es válido
+     */
+    static boolean isNdjson(String format) {
+        if (format == null || format.equalsIgnoreCase("json")) {
+            return false;
+        }
+        if (format.equalsIgnoreCase("ndjson")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Formato no soportado: " + format);
+    }
+
+    static MediaType mediaType(boolean ndjson) {
+        return ndjson ? NDJSON : MediaType.APPLICATION_JSON;
+    }
+
+    void write(Object value) throws IOException {
+        writer.write(value);
+        written++;
+    }
+
+    // Envía al cliente lo escrito hasta ahora (primeros bytes sin esperar al final)
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        if (ndjson && written > 0) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+}
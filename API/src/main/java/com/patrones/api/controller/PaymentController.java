@@ -7,9 +7,12 @@ import com.patrones.api.entity.Payment;
 import com.patrones.api.repository.ClientDataRepository;
 import com.patrones.api.repository.PaymentRepository;
 import com.patrones.api.service.PaymentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +26,9 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // ✅ Endpoint único para procesar y guardar el pago
     @PostMapping("/process")
     public PaymentResponse processPayment(@RequestBody PaymentRequest request) {
@@ -38,9 +44,36 @@ public class PaymentController {
     // ✅ Admin-only endpoint: fetch all payments
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Payment> getAllPayments() {
+    public List<PaymentRepository.PaymentView> getAllPayments() {
         return paymentService.getAllPayments();
     }
 
-    
+    // ✅ Admin-only: todos los payments en streaming (?format=json|ndjson)
+    @GetMapping("/all/stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamAllPayments(
+            @RequestParam(defaultValue = "json") String format) {
+
+        boolean ndjson;
+        try {
+            ndjson = JsonStreamWriter.isNdjson(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonStreamWriter writer = new JsonStreamWriter(objectMapper, out, ndjson)) {
+                paymentService.forEachPaymentBatch(500, batch -> {
+                    for (PaymentRepository.PaymentView payment : batch) {
+                        writer.write(payment);
+                    }
+                    writer.flush();
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(JsonStreamWriter.mediaType(ndjson))
+                .body(body);
+    }
 }
\ No newline at end of file
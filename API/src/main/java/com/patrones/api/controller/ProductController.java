@@ -1,24 +1,57 @@
 package com.patrones.api.controller;
 
+import com.patrones.api.dto.CursorPageDTO;
+import com.patrones.api.dto.KeysetCursor;
 import com.patrones.api.dto.ProductDTO;
+import com.patrones.api.dto.ProductSuggestionDTO;
 import com.patrones.api.dto.CommentDTO;
+import com.patrones.api.dto.ImportResultDTO;
 import com.patrones.api.entity.Product;
 import com.patrones.api.entity.Comment;
+import com.patrones.api.entity.ImageStatus;
 import com.patrones.api.repository.ProductRepository;
+import com.patrones.api.repository.ProductRepository.ProductSummary;
 import com.patrones.api.repository.CommentRepository;
+import com.patrones.api.repository.CommentRepository.CommentView;
+import com.patrones.api.service.CatalogCache;
+import com.patrones.api.service.ImageCache;
 import com.patrones.api.service.ImageValidationService;
+import com.patrones.api.service.ImageVariantService;
+import com.patrones.api.service.ProductImportService;
+import com.patrones.api.service.ProductPriceIndex;
+import com.patrones.api.service.ProductSearchIndex;
+import com.patrones.api.service.ProductService;
+import com.patrones.api.service.ProductSuggestIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,82 +59,333 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Comentarios incluidos por producto en las vistas paginadas del catálogo;
+    // el resto se obtiene con GET /api/products/{id}/comments
+    private static final int COMMENT_PREVIEW_SIZE = 3;
+
+    // Límite de ids por petición de borrado masivo (tamaño de la cláusula IN)
+    private static final int MAX_BULK_DELETE = 1000;
+
+    // Filas leídas por consulta en los endpoints de streaming
+    private static final int STREAM_BATCH_SIZE = 200;
+
     @Autowired
     private ProductRepository productRepository;
 
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private ImageCache imageCache;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private ProductPriceIndex productPriceIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private ImageValidationService imageValidationService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
     // -----------------------------
     // Crear producto
     // -----------------------------
-   // Crear producto
-// -----------------------------
-@PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-@PreAuthorize("hasRole('admin')")
-public ResponseEntity<?> createProduct(
-        @RequestParam String name,
-        @RequestParam String description,
-        @RequestParam Double price,
-        @RequestParam(value = "image", required = false) MultipartFile imageFile) {
-
-    try {
-        // DEBUG: Print received data
-        System.out.println("=== DEBUG: CREATE PRODUCT REQUEST ===");
-        System.out.println("Name: " + name);
-        System.out.println("Description: " + description);
-        System.out.println("Price: " + price);
-        System.out.println("Image file: " + (imageFile != null ? imageFile.getOriginalFilename() : "null"));
-        System.out.println("Image size: " + (imageFile != null ? imageFile.getSize() + " bytes" : "null"));
-        System.out.println("Image content type: " + (imageFile != null ? imageFile.getContentType() : "null"));
-        System.out.println("=====================================");
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('admin')")
+    public CompletableFuture<ResponseEntity<?>> createProduct(
+            @RequestParam String name,
+            @RequestParam String description,
+            @RequestParam Double price,
+            @RequestParam(value = "image", required = false) MultipartFile imageFile) {
 
         if (name.isBlank() || description.isBlank() || price == null || price <= 0) {
-            return ResponseEntity.badRequest().body("Campos inválidos: name, description o price");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Campos inválidos: name, description o price"));
         }
 
-        Product product = new Product();
-        product.setName(name.trim());
-        product.setDescription(description.trim());
-        product.setPrice(price);
+        // Validar y escanear imagen si existe, fuera del hilo de Tomcat; el
+        // guardado continúa en el hilo virtual del escaneo
+        return imageValidationService.validateImageAsync(imageFile)
+                .<ResponseEntity<?>>thenApply(imageStatus -> {
+                    Product product = new Product();
+                    product.setName(name.trim());
+                    product.setDescription(description.trim());
+                    product.setPrice(price);
+                    product.setImageStatus(imageStatus);
 
-        // Validar y escanear imagen si existe
-        if (imageFile != null && !imageFile.isEmpty()) {
-            imageValidationService.validateImage(imageFile);
-            product.setImageName(imageFile.getOriginalFilename());
-            product.setImageType(imageFile.getContentType());
-            product.setImageData(imageFile.getBytes());
-        }
+                    byte[] imageData = null;
+                    if (imageFile != null && !imageFile.isEmpty()) {
+                        product.setImageName(imageFile.getOriginalFilename());
+                        product.setImageType(imageFile.getContentType());
+                        try {
+                            imageData = imageFile.getBytes();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
 
-        Product savedProduct = productRepository.save(product);
-        return ResponseEntity.ok(convertToDTO(savedProduct));
+                    Product savedProduct = productService.saveWithImage(product, imageData);
+                    return ResponseEntity.ok(convertToDTO(savedProduct));
+                })
+                .exceptionally(this::createProductError);
+    }
 
-    } catch (ResponseStatusException e) {
-        // Captura errores de validación de imagen (tipo, tamaño, virus)
-          
-        return ResponseEntity.status(e.getStatusCode()).body(e.getReason() + "HOLO");
-      
-    } catch (IOException e) {
-        return ResponseEntity.badRequest().body("⚠️ Error al procesar la imagen");
-    } catch (Exception e) {
-        e.printStackTrace();
+    private ResponseEntity<?> createProductError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ResponseStatusException e) {
+            // Captura errores de validación de imagen (tipo, tamaño, virus, antivirus saturado);
+            // los 4xx son rechazos esperados y no se registran
+            if (e.getStatusCode().is5xxServerError()) {
+                log.error("Error al crear el producto: {}", e.getReason(), e);
+            }
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        }
+        if (cause instanceof UncheckedIOException) {
+            return ResponseEntity.badRequest().body("⚠️ Error al procesar la imagen");
+        }
+        log.error("Error al crear el producto", cause);
         return ResponseEntity.badRequest().body("⚠️ Error al crear el producto");
     }
-}
+
+    // -----------------------------
+    // Importación masiva (manifiesto NDJSON/CSV + zip de imágenes)
+    // -----------------------------
+    // Devuelve en streaming (NDJSON) el resultado de cada fila del manifiesto
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<StreamingResponseBody> importProducts(
+            @RequestParam("manifest") MultipartFile manifest,
+            @RequestParam(value = "images", required = false) MultipartFile images,
+            @RequestParam(required = false) String format) throws IOException {
+
+        boolean csv;
+        if (format != null && !format.isBlank()) {
+            if (!format.equalsIgnoreCase("csv") && !format.equalsIgnoreCase("ndjson")) {
+                return ResponseEntity.badRequest().build();
+            }
+            csv = format.equalsIgnoreCase("csv");
+        } else {
+            String filename = manifest.getOriginalFilename();
+            csv = filename != null && filename.toLowerCase().endsWith(".csv");
+        }
+
+        // Se copian las partes a ficheros propios: el cuerpo se procesa en otro
+        // hilo, después de que termine la petición multipart
+        Path manifestFile = Files.createTempFile("import-manifest-", ".tmp");
+        manifest.transferTo(manifestFile);
+        Path imagesFile = null;
+        if (images != null && !images.isEmpty()) {
+            imagesFile = Files.createTempFile("import-images-", ".zip");
+            images.transferTo(imagesFile);
+        }
+        Path zip = imagesFile;
+
+        StreamingResponseBody body = out -> {
+            try (JsonStreamWriter writer = new JsonStreamWriter(objectMapper, out, true)) {
+                productImportService.importProducts(manifestFile, csv, zip, results -> {
+                    for (ImportResultDTO result : results) {
+                        writer.write(result);
+                    }
+                    writer.flush();
+                });
+            } finally {
+                Files.deleteIfExists(manifestFile);
+                if (zip != null) {
+                    Files.deleteIfExists(zip);
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(JsonStreamWriter.mediaType(true))
+                .body(body);
+    }
 
     // -----------------------------
     // Obtener todos los productos
     // -----------------------------
     @GetMapping
     public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<Product> products = productRepository.findAllByOrderByCreatedAtDesc();
-        List<ProductDTO> productDTOs = products.stream()
-                .map(this::convertToDTO)
+        List<ProductSummary> products = catalogCache.getPage(CatalogCache.ALL_PRODUCTS,
+                productRepository::findAllSummaries);
+        return ResponseEntity.ok(convertToDTOs(products));
+    }
+
+    // -----------------------------
+    // Catálogo paginado (cursor keyset createdAt, id)
+    // -----------------------------
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Se pide un elemento extra para saber si existe una página siguiente
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<ProductSummary> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = catalogCache.getPage(CatalogCache.pageKey(null, pageSize),
+                    () -> productRepository.findSummaryPage(limit));
+        } else {
+            KeysetCursor after;
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Cursor inválido");
+            }
+            products = catalogCache.getPage(CatalogCache.pageKey(cursor, pageSize),
+                    () -> productRepository.findSummaryPageAfter(after.getCreatedAt(), after.getId(), limit));
+        }
+
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            ProductSummary last = products.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return ResponseEntity.ok(new CursorPageDTO<>(convertToPreviewDTOs(products), nextCursor));
+    }
+
+    // -----------------------------
+    // Catálogo completo en streaming (?format=json|ndjson)
+    // -----------------------------
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestParam(defaultValue = "json") String format) {
+
+        boolean ndjson;
+        try {
+            ndjson = JsonStreamWriter.isNdjson(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Se recorre la tabla por lotes keyset; cada lote se escribe y se libera
+        StreamingResponseBody body = out -> {
+            try (JsonStreamWriter writer = new JsonStreamWriter(objectMapper, out, ndjson)) {
+                PageRequest limit = PageRequest.of(0, STREAM_BATCH_SIZE);
+                List<ProductSummary> batch = productRepository.findSummaryPage(limit);
+                while (!batch.isEmpty()) {
+                    List<Long> ids = batch.stream().map(ProductSummary::getId).collect(Collectors.toList());
+                    Map<Long, List<CommentDTO>> previews = loadCommentPreviews(new HashSet<>(ids));
+                    for (ProductSummary product : batch) {
+                        writer.write(convertToDTO(product, previews.getOrDefault(product.getId(), List.of())));
+                    }
+                    writer.flush();
+
+                    if (batch.size() < STREAM_BATCH_SIZE) {
+                        break;
+                    }
+                    ProductSummary last = batch.get(batch.size() - 1);
+                    batch = productRepository.findSummaryPageAfter(last.getCreatedAt(), last.getId(), limit);
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(JsonStreamWriter.mediaType(ndjson))
+                .body(body);
+    }
+
+    // -----------------------------
+    // Búsqueda de texto (nombre y descripción)
+    // -----------------------------
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDTO>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(q, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        if (hits.isEmpty()) {
+            return ResponseEntity.ok(new ArrayList<>());
+        }
+
+        List<Long> ids = hits.stream().map(ProductSearchIndex.Hit::getProductId).collect(Collectors.toList());
+        return ResponseEntity.ok(convertToPreviewDTOs(findAllInOrder(ids)));
+    }
+
+    // -----------------------------
+    // Filtro y orden por precio (índice en memoria)
+    // -----------------------------
+    @GetMapping("/by-price")
+    public ResponseEntity<?> getProductsByPrice(
+            @RequestParam(defaultValue = "0") double min,
+            @RequestParam(defaultValue = "" + Double.MAX_VALUE) double max,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+
+        if (min > max || !(sort.equalsIgnoreCase("asc") || sort.equalsIgnoreCase("desc"))) {
+            return ResponseEntity.badRequest().body("Parámetros inválidos: min, max o sort");
+        }
+
+        // El cursor de esta vista es la posición dentro del rango de precios
+        int offset;
+        try {
+            offset = cursor == null || cursor.isBlank() ? 0 : Math.max(0, Integer.parseInt(cursor));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("Cursor inválido");
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        ProductPriceIndex.Range range = productPriceIndex.range(
+                min, max, sort.equalsIgnoreCase("desc"), offset, pageSize);
+
+        List<Long> ids = new ArrayList<>(range.getIds().length);
+        for (long id : range.getIds()) {
+            ids.add(id);
+        }
+        int next = offset + ids.size();
+        String nextCursor = next < range.getTotal() ? String.valueOf(next) : null;
+        return ResponseEntity.ok(new CursorPageDTO<>(convertToPreviewDTOs(findAllInOrder(ids)), nextCursor));
+    }
+
+    /**
+     * Carga los productos indicados conservando el orden de la lista de ids.
+     */
+    private List<ProductSummary> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductSummary> byId = productRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(ProductSummary::getId, p -> p));
+        return ids.stream()
+                .map(byId::get)
+                .filter(p -> p != null)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(productDTOs);
+    }
+
+    // -----------------------------
+    // Autocompletado (type-ahead) por nombre
+    // -----------------------------
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        int max = Math.max(1, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+        return ResponseEntity.ok(productSuggestIndex.suggest(q, max));
     }
 
     // -----------------------------
@@ -111,15 +395,10 @@ public ResponseEntity<?> createProduct(
 @PreAuthorize("hasRole('admin')")
 public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
     try {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
-
-        // Eliminar primero los comentarios asociados
-        List<Comment> comments = commentRepository.findByProductIdOrderByCreatedAtDesc(id);
-        commentRepository.deleteAll(comments);
-
-        // Eliminar el producto
-        productRepository.delete(product);
+        // Comentarios, variantes y producto se borran con DELETE masivos en una transacción
+        if (productService.deleteProducts(List.of(id)).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado");
+        }
 
         return ResponseEntity.ok().body("Producto eliminado correctamente");
     } catch (ResponseStatusException e) {
@@ -128,16 +407,109 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         return ResponseEntity.badRequest().body("Error al eliminar el producto");
     }
 }
+
+    // -----------------------------
+    // Eliminar varios productos en una transacción
+    // -----------------------------
+    @PostMapping("/bulk-delete")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<?> deleteProducts(@RequestBody BulkDeleteRequest request) {
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return ResponseEntity.badRequest().body("Debe indicar al menos un id");
+        }
+        if (request.getIds().size() > MAX_BULK_DELETE) {
+            return ResponseEntity.badRequest().body("Máximo " + MAX_BULK_DELETE + " productos por petición");
+        }
+
+        try {
+            Set<Long> requested = new LinkedHashSet<>(request.getIds());
+            requested.remove(null);
+            List<Long> deleted = productService.deleteProducts(requested);
+            requested.removeAll(deleted);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("deleted", deleted);
+            result.put("notFound", new ArrayList<>(requested));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error al eliminar los productos");
+        }
+    }
+
     // -----------------------------
     // Obtener imagen de producto
     // -----------------------------
+    // ?size=thumb|card|full devuelve una variante redimensionada; sin size, el original
     @GetMapping("/{id}/image")
-    public ResponseEntity<byte[]> getProductImage(@PathVariable Long id) {
-        return productRepository.findById(id)
-                .filter(p -> p.getImageData() != null)
-                .map(p -> ResponseEntity.ok()
-                        .header("Content-Type", p.getImageType())
-                        .body(p.getImageData()))
+    public ResponseEntity<Resource> getProductImage(
+            @PathVariable Long id,
+            @RequestParam(required = false) String size,
+            WebRequest request) {
+
+        ImageVariantService.Size variantSize;
+        try {
+            variantSize = ImageVariantService.Size.fromParam(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Metadatos y contenido pasan por ImageCache: las imágenes populares no tocan la BD
+        ProductRepository.ImageView product = imageCache.productImage(id).orElse(null);
+        if (product == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (variantSize != null) {
+            ResponseEntity<Resource> variant = getVariantImage(product, variantSize.key(), request);
+            if (variant != null) {
+                return variant;
+            }
+        }
+
+        // 304 sin cargar el blob si el cliente ya tiene esta imagen
+        ResponseEntity<Resource> notModified = ImageResponses.notModified(
+                request, product.getImageSha256(), product.getCreatedAt(), ImageResponses.IMMUTABLE);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        return imageCache.content(product.getImageSha256())
+                .map(image -> ImageResponses.ok(image, product.getImageType(),
+                        product.getImageSha256(), product.getCreatedAt(), ImageResponses.IMMUTABLE, request))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Sirve una variante ya generada; null si todavía no existe (se usará el original).
+     * La respuesta de respaldo no es inmutable porque la variante aparecerá más tarde.
+     */
+    private ResponseEntity<Resource> getVariantImage(ProductRepository.ImageView product, String variant, WebRequest request) {
+        var metadata = imageCache.variant(product.getId(), variant).orElse(null);
+        if (metadata == null) {
+            return servePendingVariant(product, request);
+        }
+
+        ResponseEntity<Resource> notModified = ImageResponses.notModified(
+                request, metadata.getSha256(), product.getCreatedAt(), ImageResponses.IMMUTABLE);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        return imageCache.content(metadata.getSha256())
+                .map(image -> ImageResponses.ok(image, metadata.getContentType(),
+                        metadata.getSha256(), product.getCreatedAt(), ImageResponses.IMMUTABLE, request))
+                .orElse(null);
+    }
+
+    private ResponseEntity<Resource> servePendingVariant(ProductRepository.ImageView product, WebRequest request) {
+        ResponseEntity<Resource> notModified = ImageResponses.notModified(
+                request, product.getImageSha256(), product.getCreatedAt(), ImageResponses.SHORT_LIVED);
+        if (notModified != null) {
+            return notModified;
+        }
+        return imageCache.content(product.getImageSha256())
+                .map(image -> ImageResponses.ok(image, product.getImageType(),
+                        product.getImageSha256(), product.getCreatedAt(), ImageResponses.SHORT_LIVED, request))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -154,12 +526,8 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
             Product product = productRepository.findById(productId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
 
-            Comment comment = new Comment();
-            comment.setContent(request.getContent());
-            comment.setProduct(product);
-            comment.setAuthor(jwt.getClaimAsString("preferred_username"));
-
-            Comment savedComment = commentRepository.save(comment);
+            Comment savedComment = productService.addComment(
+                    product, request.getContent(), jwt.getClaimAsString("preferred_username"));
             return ResponseEntity.ok(convertToCommentDTO(savedComment));
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
@@ -168,9 +536,52 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         }
     }
 
+    // -----------------------------
+    // Comentarios de un producto (paginados por cursor)
+    // -----------------------------
+    @GetMapping("/{productId}/comments")
+    public ResponseEntity<?> getComments(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+
+        if (!productRepository.existsById(productId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Producto no encontrado");
+        }
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<CommentView> comments;
+        if (cursor == null || cursor.isBlank()) {
+            comments = commentRepository.findPage(productId, limit);
+        } else {
+            KeysetCursor after;
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Cursor inválido");
+            }
+            comments = commentRepository.findPageAfter(productId, after.getCreatedAt(), after.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (comments.size() > pageSize) {
+            comments = comments.subList(0, pageSize);
+            CommentView last = comments.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<CommentDTO> items = comments.stream().map(this::convertToCommentDTO).collect(Collectors.toList());
+        return ResponseEntity.ok(new CursorPageDTO<>(items, nextCursor));
+    }
+
     // -----------------------------
     // Conversión a DTO
     // -----------------------------
+    /**
+     * DTO de un producto recién creado (todavía sin comentarios).
+     */
     private ProductDTO convertToDTO(Product product) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getId());
@@ -178,14 +589,82 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         dto.setDescription(product.getDescription());
         dto.setPrice(product.getPrice());
         dto.setCreatedAt(product.getCreatedAt());
-        dto.setHasImage(product.getImageData() != null);
+        dto.setHasImage(product.getImageSize() != null && product.getImageStatus() != ImageStatus.PENDING_SCAN);
         dto.setImageType(product.getImageType());
+        dto.setImageSize(product.getImageSize());
+        dto.setCommentCount(0);
+        dto.setComments(new ArrayList<>());
+        return dto;
+    }
+
+    /**
+     * Convierte una lista de productos. Los comentarios se toman de la caché
+     * del catálogo; los que falten se cargan todos en una sola consulta.
+     */
+    private List<ProductDTO> convertToDTOs(List<ProductSummary> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        List<CommentDTO> commentDTOs = commentRepository.findByProductIdOrderByCreatedAtDesc(product.getId())
-                .stream()
-                .map(this::convertToCommentDTO)
+        List<Long> ids = products.stream().map(ProductSummary::getId).collect(Collectors.toList());
+        Map<Long, List<CommentDTO>> commentsByProduct = catalogCache.getComments(ids, this::loadComments);
+
+        return products.stream()
+                .map(p -> convertToDTO(p, commentsByProduct.getOrDefault(p.getId(), List.of())))
                 .collect(Collectors.toList());
+    }
 
+    /**
+     * Igual que convertToDTOs, pero cada producto incluye solo sus últimos
+     * COMMENT_PREVIEW_SIZE comentarios, así el tamaño por producto es constante.
+     */
+    private List<ProductDTO> convertToPreviewDTOs(List<ProductSummary> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = products.stream().map(ProductSummary::getId).collect(Collectors.toList());
+        Map<Long, List<CommentDTO>> previews = catalogCache.getCommentPreviews(ids, this::loadCommentPreviews);
+
+        return products.stream()
+                .map(p -> convertToDTO(p, previews.getOrDefault(p.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, List<CommentDTO>> loadCommentPreviews(Set<? extends Long> productIds) {
+        return groupByProduct(productIds,
+                commentRepository.findLatestByProductIdIn(new ArrayList<>(productIds), COMMENT_PREVIEW_SIZE));
+    }
+
+    private Map<Long, List<CommentDTO>> loadComments(Set<? extends Long> productIds) {
+        return groupByProduct(productIds, commentRepository.findByProductIdIn(new ArrayList<>(productIds)));
+    }
+
+    private Map<Long, List<CommentDTO>> groupByProduct(Set<? extends Long> productIds, List<CommentView> comments) {
+        Map<Long, List<CommentDTO>> commentsByProduct = new HashMap<>();
+        for (Long id : productIds) {
+            commentsByProduct.put(id, new ArrayList<>());
+        }
+        for (CommentView comment : comments) {
+            commentsByProduct.get(comment.getProductId()).add(convertToCommentDTO(comment));
+        }
+        commentsByProduct.replaceAll((id, list) -> List.copyOf(list));
+        return commentsByProduct;
+    }
+
+    // Visible en el paquete para ProductDtoBenchmark (src/jmh/java)
+    ProductDTO convertToDTO(ProductSummary product, List<CommentDTO> commentDTOs) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setPrice(product.getPrice());
+        dto.setCreatedAt(product.getCreatedAt());
+        // Las imágenes en cuarentena no se muestran hasta que el antivirus las apruebe
+        dto.setHasImage(product.getImageSize() != null && product.getImageStatus() != ImageStatus.PENDING_SCAN);
+        dto.setImageType(product.getImageType());
+        dto.setImageSize(product.getImageSize());
+        dto.setCommentCount(product.getCommentCount() != null ? product.getCommentCount() : 0);
         dto.setComments(commentDTOs);
         return dto;
     }
@@ -199,6 +678,15 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         return dto;
     }
 
+    private CommentDTO convertToCommentDTO(CommentView comment) {
+        CommentDTO dto = new CommentDTO();
+        dto.setId(comment.getId());
+        dto.setContent(comment.getContent());
+        dto.setAuthor(comment.getAuthor());
+        dto.setCreatedAt(comment.getCreatedAt());
+        return dto;
+    }
+
     // -----------------------------
     // Eliminar comentario
     // -----------------------------
@@ -209,7 +697,7 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
             Comment comment = commentRepository.findById(commentId)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Comentario no encontrado"));
             
-            commentRepository.delete(comment);
+            productService.deleteComment(comment);
             return ResponseEntity.ok().build();
         } catch (ResponseStatusException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
@@ -218,6 +706,16 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         }
     }
 
+    // -----------------------------
+    // Clase interna para el borrado masivo
+    // -----------------------------
+    public static class BulkDeleteRequest {
+        private List<Long> ids;
+
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) { this.ids = ids; }
+    }
+
     // -----------------------------
     // Clase interna para requests de comentario
     // -----------------------------
@@ -1,6 +1,5 @@
 package com.patrones.api.controller;
 
-import com.patrones.api.entity.Product;
 import com.patrones.api.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,15 +18,15 @@ public class TestController {
     
     @GetMapping("/api/test/{id}")
     public ResponseEntity<?> debugProduct(@PathVariable Long id) {
-        return productRepository.findById(id)
+        return productRepository.findImageInfoById(id)
                 .map(product -> {
                     Map<String, Object> debugInfo = new HashMap<>();
                     debugInfo.put("id", product.getId());
                     debugInfo.put("name", product.getName());
                     debugInfo.put("imageName", product.getImageName());
                     debugInfo.put("imageType", product.getImageType());
-                    debugInfo.put("hasImageData", product.getImageData() != null);
-                    debugInfo.put("imageDataLength", product.getImageData() != null ? product.getImageData().length : 0);
+                    debugInfo.put("hasImageData", product.getImageSize() != null);
+                    debugInfo.put("imageDataLength", product.getImageSize() != null ? product.getImageSize() : 0);
                     return ResponseEntity.ok(debugInfo);
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -35,7 +34,7 @@ public class TestController {
 
     @GetMapping("/api/test/all")
     public ResponseEntity<?> debugAllProducts() {
-        var products = productRepository.findAll();
+        var products = productRepository.findAllImageInfo();
         var debugInfo = new HashMap<>();
         
         products.forEach(product -> {
@@ -44,8 +43,8 @@ public class TestController {
             productInfo.put("name", product.getName());
             productInfo.put("imageName", product.getImageName());
             productInfo.put("imageType", product.getImageType());
-            productInfo.put("hasImageData", product.getImageData() != null);
-            productInfo.put("imageDataLength", product.getImageData() != null ? product.getImageData().length : 0);
+            productInfo.put("hasImageData", product.getImageSize() != null);
+            productInfo.put("imageDataLength", product.getImageSize() != null ? product.getImageSize() : 0);
             debugInfo.put("product_" + product.getId(), productInfo);
         });
         
@@ -4,7 +4,7 @@ public class ClientDataDTO {
     private Long id;
     private String uid;
     private String correo;       // <-- nuevo campo
-    private byte[] imagen;       // <-- imagen opcional
+    private String imagen;       // <-- URL de la imagen (null si no tiene)
     private boolean usoCodigoDescuento;
 
     public ClientDataDTO() {}
@@ -19,8 +19,8 @@ public class ClientDataDTO {
     public String getCorreo() { return correo; }
     public void setCorreo(String correo) { this.correo = correo; }
 
-    public byte[] getImagen() { return imagen; }
-    public void setImagen(byte[] imagen) { this.imagen = imagen; }
+    public String getImagen() { return imagen; }
+    public void setImagen(String imagen) { this.imagen = imagen; }
 
     public boolean isUsoCodigoDescuento() { return usoCodigoDescuento; }
     public void setUsoCodigoDescuento(boolean usoCodigoDescuento) { 
@@ -0,0 +1,48 @@
+package com.patrones.api.dto;
+
+/**
+ * Resultado de una fila del manifiesto de importación masiva.
+ */
+public class ImportResultDTO {
+    private int line;
+    private String name;
+    private String status;      // "created" | "error"
+    private Long productId;
+    private String error;
+
+    public ImportResultDTO() {}
+
+    public static ImportResultDTO created(int line, String name, Long productId) {
+        ImportResultDTO dto = new ImportResultDTO();
+        dto.setLine(line);
+        dto.setName(name);
+        dto.setStatus("created");
+        dto.setProductId(productId);
+        return dto;
+    }
+
+    public static ImportResultDTO error(int line, String name, String error) {
+        ImportResultDTO dto = new ImportResultDTO();
+        dto.setLine(line);
+        dto.setName(name);
+        dto.setStatus("error");
+        dto.setError(error);
+        return dto;
+    }
+
+    // Getters y Setters
+    public int getLine() { return line; }
+    public void setLine(int line) { this.line = line; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
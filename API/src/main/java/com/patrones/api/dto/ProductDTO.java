@@ -11,6 +11,8 @@ public class ProductDTO {
     private LocalDateTime createdAt;
     private boolean hasImage;
     private String imageType;
+    private Long imageSize;
+    private int commentCount;
     private List<CommentDTO> comments;
 
     // Getters y Setters
@@ -35,6 +37,12 @@ public class ProductDTO {
     public String getImageType() { return imageType; }
     public void setImageType(String imageType) { this.imageType = imageType; }
 
+    public Long getImageSize() { return imageSize; }
+    public void setImageSize(Long imageSize) { this.imageSize = imageSize; }
+
+    public int getCommentCount() { return commentCount; }
+    public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
+
     public List<CommentDTO> getComments() { return comments; }
     public void setComments(List<CommentDTO> comments) { this.comments = comments; }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.patrones.api.dto;
+
+public class ProductSuggestionDTO {
+    private Long id;
+    private String name;
+
+    public ProductSuggestionDTO() {}
+
+    public ProductSuggestionDTO(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    // Getters y Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -2,6 +2,8 @@ package com.patrones.api.entity;
 
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "client_data")
 public class ClientData {
@@ -17,8 +19,15 @@ public class ClientData {
     private String correo;   // <-- nuevo campo
 
 
-    @Column(columnDefinition = "BYTEA")
-    private byte[] imagen;   // <-- opcional
+    @Column(name = "imagen_sha256", length = 64)
+    private String imagenSha256;   // <-- imagen opcional: hash en el almacén de imágenes (y ETag)
+
+    @Column(name = "imagen_updated_at")
+    private LocalDateTime imagenUpdatedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "imagen_status", length = 20)
+    private ImageStatus imagenStatus;   // <-- PENDING_SCAN: oculta hasta el reescaneo (null = CLEAN)
 
     @Column(name = "uso_codigo_descuento", nullable = false)
     private boolean usoCodigoDescuento = false;
@@ -36,8 +45,14 @@ public class ClientData {
     public String getCorreo() { return correo; }
     public void setCorreo(String correo) { this.correo = correo; }
 
-    public byte[] getImagen() { return imagen; }
-    public void setImagen(byte[] imagen) { this.imagen = imagen; }
+    public String getImagenSha256() { return imagenSha256; }
+    public void setImagenSha256(String imagenSha256) { this.imagenSha256 = imagenSha256; }
+
+    public LocalDateTime getImagenUpdatedAt() { return imagenUpdatedAt; }
+    public void setImagenUpdatedAt(LocalDateTime imagenUpdatedAt) { this.imagenUpdatedAt = imagenUpdatedAt; }
+
+    public ImageStatus getImagenStatus() { return imagenStatus; }
+    public void setImagenStatus(ImageStatus imagenStatus) { this.imagenStatus = imagenStatus; }
 
     public boolean isUsoCodigoDescuento() { return usoCodigoDescuento; }
     public void setUsoCodigoDescuento(boolean usoCodigoDescuento) { 
@@ -0,0 +1,25 @@
+package com.patrones.api.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contenido de una imagen indexado por su SHA-256. Solo se usa con
+ * images.storage.type=database; por defecto las imágenes van a disco.
+ */
+@Entity
+@Table(name = "image_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageBlob {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "data", columnDefinition = "bytea", nullable = false)
+    private byte[] data;
+}
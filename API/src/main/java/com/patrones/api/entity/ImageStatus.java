@@ -0,0 +1,11 @@
+package com.patrones.api.entity;
+
+/**
+ * Estado del escaneo antivirus de una imagen guardada. Las filas anteriores a
+ * la cuarentena tienen el estado a null, que equivale a CLEAN.
+ */
+public enum ImageStatus {
+    CLEAN,
+    // Aceptada con ClamAV caído: oculta hasta que el reescaneo la apruebe
+    PENDING_SCAN
+}
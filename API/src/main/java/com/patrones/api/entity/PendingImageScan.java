@@ -0,0 +1,36 @@
+package com.patrones.api.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cola persistente de imágenes en cuarentena (PENDING_SCAN) pendientes de
+ * escanear cuando ClamAV vuelva a estar disponible. Una fila por contenido:
+ * el mismo SHA-256 puede estar referenciado por varios productos o clientes.
+ */
+@Entity
+@Table(name = "pending_image_scans")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingImageScan {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_attempt_at")
+    private LocalDateTime lastAttemptAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -34,8 +34,22 @@ public class Product {
     @Column(name = "image_type", length = 100)
     private String imageType;
     
-    @Column(name = "image_data", columnDefinition = "bytea")
-    private byte[] imageData;
+    // Tamaño en bytes de la imagen; los bytes viven en el almacén (ImageStorage)
+    @Column(name = "image_size")
+    private Long imageSize;
+
+    // SHA-256 (hex) de la imagen: clave en el almacén y ETag
+    @Column(name = "image_sha256", length = 64)
+    private String imageSha256;
+
+    // Resultado del antivirus; PENDING_SCAN oculta la imagen (null = CLEAN)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "image_status", length = 20)
+    private ImageStatus imageStatus;
+    
+    // Contador desnormalizado de comentarios, se mantiene al agregar/eliminar
+    @Column(name = "comment_count", nullable = false, columnDefinition = "integer default 0")
+    private Integer commentCount = 0;
     
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
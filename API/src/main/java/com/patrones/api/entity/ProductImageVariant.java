@@ -0,0 +1,40 @@
+package com.patrones.api.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Versión redimensionada (thumb, card, full) de la imagen de un producto,
+ * generada una sola vez al subir la imagen original.
+ */
+@Entity
+@Table(name = "product_image_variants",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "variant"}))
+@Data
+@NoArgsConstructor
+public class ProductImageVariant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "variant", nullable = false, length = 16)
+    private String variant;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    // Los bytes están en el almacén de imágenes, bajo este hash
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+}
@@ -0,0 +1,14 @@
+package com.patrones.api.event;
+
+/**
+ * Se publica cuando se agrega o elimina un comentario de un producto.
+ */
+public class CommentsChangedEvent {
+    private final Long productId;
+
+    public CommentsChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() { return productId; }
+}
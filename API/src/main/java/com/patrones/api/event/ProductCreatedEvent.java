@@ -0,0 +1,16 @@
+package com.patrones.api.event;
+
+import com.patrones.api.entity.Product;
+
+/**
+ * Se publica cuando se guarda un producto nuevo.
+ */
+public class ProductCreatedEvent {
+    private final Product product;
+
+    public ProductCreatedEvent(Product product) {
+        this.product = product;
+    }
+
+    public Product getProduct() { return product; }
+}
@@ -0,0 +1,14 @@
+package com.patrones.api.event;
+
+/**
+ * Se publica cuando se elimina un producto.
+ */
+public class ProductDeletedEvent {
+    private final Long productId;
+
+    public ProductDeletedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() { return productId; }
+}
@@ -0,0 +1,15 @@
+package com.patrones.api.event;
+
+/**
+ * Se publica cuando el reescaneo de la cuarentena aprueba o retira la imagen
+ * de un producto.
+ */
+public class ProductImageStatusChangedEvent {
+    private final Long productId;
+
+    public ProductImageStatusChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() { return productId; }
+}
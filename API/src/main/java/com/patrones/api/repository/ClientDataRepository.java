@@ -1,10 +1,41 @@
 package com.patrones.api.repository;
 
 import com.patrones.api.entity.ClientData;
+import com.patrones.api.entity.ImageStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface ClientDataRepository extends JpaRepository<ClientData, Long> {
     Optional<ClientData> findByUid(String uid);
+
+    // Solo los metadatos de la imagen (sin el blob) para peticiones condicionales
+    @Query("SELECT c.imagenSha256 AS imagenSha256, c.imagenUpdatedAt AS imagenUpdatedAt, " +
+           "c.imagenStatus AS imagenStatus FROM ClientData c WHERE c.uid = :uid")
+    Optional<ImageMetadata> findImageMetadataByUid(@Param("uid") String uid);
+
+    boolean existsByImagenSha256(String imagenSha256);
+
+    // Cuarentena: resultado del reescaneo de un contenido en PENDING_SCAN
+    @Modifying
+    @Query("UPDATE ClientData c SET c.imagenStatus = :status " +
+           "WHERE c.imagenSha256 = :sha256 AND c.imagenStatus = :current")
+    int updateImagenStatus(@Param("sha256") String sha256,
+                           @Param("current") ImageStatus current,
+                           @Param("status") ImageStatus status);
+
+    @Modifying
+    @Query("UPDATE ClientData c SET c.imagenSha256 = NULL, c.imagenUpdatedAt = NULL, c.imagenStatus = NULL " +
+           "WHERE c.imagenSha256 = :sha256 AND c.imagenStatus = :current")
+    int clearImagen(@Param("sha256") String sha256, @Param("current") ImageStatus current);
+
+    interface ImageMetadata {
+        String getImagenSha256();
+        LocalDateTime getImagenUpdatedAt();
+        ImageStatus getImagenStatus();
+    }
 }
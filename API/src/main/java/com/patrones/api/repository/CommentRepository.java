@@ -2,12 +2,67 @@
 package com.patrones.api.repository;
 
 import com.patrones.api.entity.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByProductIdOrderByCreatedAtDesc(Long productId);
-}
\ No newline at end of file
+
+    // Borrado en una sola sentencia de los comentarios de varios productos
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.product.id IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // -----------------------------
+    // Proyecciones de lectura (sin entidades gestionadas ni el proxy de Product)
+    // -----------------------------
+    String VIEW_COLUMNS = "c.id AS id, c.product.id AS productId, c.content AS content, " +
+                          "c.author AS author, c.createdAt AS createdAt";
+
+    // Comentarios de varios productos en una sola consulta (evita N+1 en el catálogo)
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c WHERE c.product.id IN :productIds " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // Los últimos N comentarios de cada producto, en una sola consulta.
+    // Los alias van entre comillas para que PostgreSQL conserve las mayúsculas.
+    @Query(value = "SELECT id AS \"id\", product_id AS \"productId\", content AS \"content\", " +
+                   "author AS \"author\", created_at AS \"createdAt\" FROM (" +
+                   "SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.product_id " +
+                   "ORDER BY c.created_at DESC, c.id DESC) AS rn " +
+                   "FROM comments c WHERE c.product_id IN (:productIds)) ranked " +
+                   "WHERE rn <= :perProduct ORDER BY created_at DESC, id DESC",
+           nativeQuery = true)
+    List<CommentView> findLatestByProductIdIn(@Param("productIds") Collection<Long> productIds,
+                                              @Param("perProduct") int perProduct);
+
+    // Paginación keyset de los comentarios de un producto (createdAt DESC, id DESC)
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c WHERE c.product.id = :productId " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findPage(@Param("productId") Long productId, Pageable pageable);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c WHERE c.product.id = :productId " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findPageAfter(@Param("productId") Long productId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    interface CommentView {
+        Long getId();
+        Long getProductId();
+        String getContent();
+        String getAuthor();
+        LocalDateTime getCreatedAt();
+    }
+}
@@ -0,0 +1,17 @@
+package com.patrones.api.repository;
+
+import com.patrones.api.entity.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // Solo los bytes, sin dejar la entidad en el contexto de persistencia
+    @Query("SELECT b.data FROM ImageBlob b WHERE b.sha256 = :sha256")
+    Optional<byte[]> findData(@Param("sha256") String sha256);
+}
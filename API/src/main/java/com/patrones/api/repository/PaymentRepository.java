@@ -1,7 +1,12 @@
 package com.patrones.api.repository;
 
 import com.patrones.api.entity.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -10,5 +15,37 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     Optional<Payment> findByTransactionId(String transactionId);
 
-    
+    // -----------------------------
+    // Proyección de lectura para los listados (sin entidades gestionadas)
+    // -----------------------------
+    String VIEW_COLUMNS = "p.id AS id, p.transactionId AS transactionId, p.status AS status, " +
+                          "p.token AS token, p.cardBin AS cardBin, p.cardLast4 AS cardLast4, " +
+                          "p.amount AS amount, p.currency AS currency, p.direccion AS direccion, " +
+                          "p.items AS items, p.usedCoupon AS usedCoupon, p.clientUid AS clientUid, " +
+                          "p.fechaPago AS fechaPago, p.clientDataId AS clientDataId, p.idCompra AS idCompra";
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Payment p ORDER BY p.id")
+    List<PaymentView> findAllViews();
+
+    // Recorrido por lotes keyset (id ascendente) para exportaciones en streaming
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Payment p WHERE p.id > :id ORDER BY p.id")
+    List<PaymentView> findViewsAfter(@Param("id") Long id, Pageable pageable);
+
+    interface PaymentView {
+        Long getId();
+        String getTransactionId();
+        String getStatus();
+        String getToken();
+        String getCardBin();
+        String getCardLast4();
+        Double getAmount();
+        String getCurrency();
+        String getDireccion();
+        String getItems();
+        boolean isUsedCoupon();
+        String getClientUid();
+        LocalDateTime getFechaPago();
+        Long getClientDataId();
+        Long getIdCompra();
+    }
 }
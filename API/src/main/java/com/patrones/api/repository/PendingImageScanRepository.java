@@ -0,0 +1,27 @@
+package com.patrones.api.repository;
+
+import com.patrones.api.entity.PendingImageScan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface PendingImageScanRepository extends JpaRepository<PendingImageScan, String> {
+
+    // Idempotente: el mismo contenido puede quedar en cuarentena desde varias subidas a la vez.
+    // Se une a la transacción de quien guarda la referencia; sin ella abre la suya
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO pending_image_scans (sha256, attempts, created_at) " +
+                   "VALUES (:sha256, 0, now()) ON CONFLICT (sha256) DO NOTHING", nativeQuery = true)
+    int enqueue(@Param("sha256") String sha256);
+
+    // Las más antiguas primero
+    List<PendingImageScan> findAllByOrderByCreatedAtAsc(Pageable pageable);
+}
@@ -0,0 +1,36 @@
+package com.patrones.api.repository;
+
+import com.patrones.api.entity.ProductImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductImageVariantRepository extends JpaRepository<ProductImageVariant, Long> {
+
+    // Metadatos de la variante (sin bytes) para resolver ETag y Content-Type
+    @Query("SELECT v.sha256 AS sha256, v.contentType AS contentType FROM ProductImageVariant v " +
+           "WHERE v.productId = :productId AND v.variant = :variant")
+    Optional<VariantMetadata> findMetadata(@Param("productId") Long productId, @Param("variant") String variant);
+
+    // Hashes de las variantes, para liberarlas del almacén al eliminar los productos
+    @Query("SELECT v.sha256 FROM ProductImageVariant v WHERE v.productId IN :productIds")
+    List<String> findSha256ByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    boolean existsBySha256(String sha256);
+
+    @Modifying
+    @Query("DELETE FROM ProductImageVariant v WHERE v.productId IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    interface VariantMetadata {
+        String getSha256();
+        String getContentType();
+    }
+}
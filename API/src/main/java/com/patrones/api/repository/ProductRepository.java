@@ -1,19 +1,155 @@
 // src/main/java/com/patrones/api/repository/ProductRepository.java
 package com.patrones.api.repository;
 
+import com.patrones.api.entity.ImageStatus;
 import com.patrones.api.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
     // Método para obtener todos los productos ordenados por fecha de creación descendente
     List<Product> findAllByOrderByCreatedAtDesc();
+
+    // -----------------------------
+    // Proyecciones de lectura: solo las columnas que serializa cada endpoint,
+    // sin entidades gestionadas en el contexto de persistencia
+    // -----------------------------
+    String SUMMARY_COLUMNS = "p.id AS id, p.name AS name, p.description AS description, " +
+                             "p.price AS price, p.imageType AS imageType, p.imageSize AS imageSize, " +
+                             "p.imageStatus AS imageStatus, p.commentCount AS commentCount, p.createdAt AS createdAt";
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM Product p ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductSummary> findAllSummaries();
+
+    // Paginación keyset: primera página del catálogo (createdAt DESC, id DESC)
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM Product p ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductSummary> findSummaryPage(Pageable pageable);
+
+    // Paginación keyset: página siguiente al cursor (createdAt, id)
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM Product p " +
+           "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductSummary> findSummaryPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM Product p WHERE p.id IN :ids")
+    List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Metadatos de imagen para los endpoints de depuración
+    @Query("SELECT p.id AS id, p.name AS name, p.imageName AS imageName, " +
+           "p.imageType AS imageType, p.imageSize AS imageSize FROM Product p")
+    List<ImageInfo> findAllImageInfo();
+
+    @Query("SELECT p.id AS id, p.name AS name, p.imageName AS imageName, " +
+           "p.imageType AS imageType, p.imageSize AS imageSize FROM Product p WHERE p.id = :id")
+    Optional<ImageInfo> findImageInfoById(@Param("id") Long id);
+
+    interface ProductSummary {
+        Long getId();
+        String getName();
+        String getDescription();
+        Double getPrice();
+        String getImageType();
+        Long getImageSize();
+        ImageStatus getImageStatus();
+        Integer getCommentCount();
+        LocalDateTime getCreatedAt();
+    }
+
+    // Lo necesario para servir la imagen de un producto (ver ImageCache)
+    @Query("SELECT p.id AS id, p.imageType AS imageType, p.imageSha256 AS imageSha256, " +
+           "p.imageStatus AS imageStatus, p.createdAt AS createdAt FROM Product p WHERE p.id = :id")
+    Optional<ImageView> findImageViewById(@Param("id") Long id);
+
+    interface ImageView {
+        Long getId();
+        String getImageType();
+        String getImageSha256();
+        ImageStatus getImageStatus();
+        LocalDateTime getCreatedAt();
+    }
+
+    // Cuarentena: productos cuya imagen (por contenido) tiene un estado dado
+    @Query("SELECT p.id FROM Product p WHERE p.imageSha256 = :sha256 AND p.imageStatus = :status")
+    List<Long> findIdsByImageSha256AndImageStatus(@Param("sha256") String sha256,
+                                                  @Param("status") ImageStatus status);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.imageStatus = :status WHERE p.id IN :ids")
+    int updateImageStatus(@Param("ids") Collection<Long> ids, @Param("status") ImageStatus status);
+
+    // Imagen rechazada en el reescaneo: el producto se queda sin imagen
+    @Modifying
+    @Query("UPDATE Product p SET p.imageName = NULL, p.imageType = NULL, p.imageSize = NULL, " +
+           "p.imageSha256 = NULL, p.imageStatus = NULL WHERE p.id IN :ids")
+    int clearImage(@Param("ids") Collection<Long> ids);
+
+    interface ImageInfo {
+        Long getId();
+        String getName();
+        String getImageName();
+        String getImageType();
+        Long getImageSize();
+    }
+
+    // Ids existentes y hash de su imagen, para el borrado masivo sin cargar entidades.
+    // FOR UPDATE choca con el FOR KEY SHARE de la FK de product_image_variants:
+    // una variante que se esté insertando termina antes (y se ve al leer sus
+    // hashes) o espera al borrado y falla
+    @Query(value = "SELECT id AS \"id\", image_sha256 AS \"imageSha256\" FROM products " +
+                   "WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<ImageHashView> lockImageHashesByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface ImageHashView {
+        Long getId();
+        String getImageSha256();
+    }
+
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // ¿Algún producto usa esta imagen? (almacén deduplicado por contenido)
+    boolean existsByImageSha256(String imageSha256);
+
+    // Actualiza el contador desnormalizado de comentarios de forma atómica
+    @Modifying
+    @Query("UPDATE Product p SET p.commentCount = p.commentCount + :delta WHERE p.id = :id")
+    int adjustCommentCount(@Param("id") Long id, @Param("delta") int delta);
+
+    // Solo id y precio, para construir el índice de precios sin cargar entidades
+    @Query("SELECT p.id AS id, p.price AS price FROM Product p")
+    List<PriceView> findAllPrices();
+
+    interface PriceView {
+        Long getId();
+        Double getPrice();
+    }
+
+    // Lo que indexan la búsqueda y el autocompletado, sin cargar entidades
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description, p.createdAt AS createdAt FROM Product p")
+    List<TextView> findAllTextViews();
+
+    interface TextView {
+        Long getId();
+        String getName();
+        String getDescription();
+        LocalDateTime getCreatedAt();
+    }
     
     // También puedes agregar otros métodos útiles:
     List<Product> findByNameContainingIgnoreCase(String name);
     List<Product> findByPriceBetween(Double minPrice, Double maxPrice);
-}
\ No newline at end of file
+}
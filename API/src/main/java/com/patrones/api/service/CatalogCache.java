@@ -0,0 +1,211 @@
+package com.patrones.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.patrones.api.dto.CommentDTO;
+import com.patrones.api.event.CommentsChangedEvent;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.event.ProductImageStatusChangedEvent;
+import com.patrones.api.repository.ProductRepository.ProductSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria de las lecturas del catálogo: páginas de productos,
+ * listas de comentarios y vistas previas de comentarios por producto. Acotada por tamaño y con TTL; se
+ * invalida al confirmar cambios de productos o comentarios.
+ * Las métricas (cache.gets hit/miss, cache.evictions) se publican en
+ * /actuator/metrics con los nombres catalog.pages, catalog.comments y
+ * catalog.comment-previews.
+ * <p>
+ * Una carga que leyó la BD antes de una invalidación no debe quedar en caché
+ * después de ella: cada invalidación sube una generación (una para las
+ * páginas, que se invalidan por contenido, y una por producto para los
+ * comentarios) antes de borrar, y la carga, tras guardar su resultado, lo
+ * retira si la generación cambió desde que empezó.
+ */
+@Service
+public class CatalogCache {
+
+    // Clave de la lista completa (GET /api/products)
+    public static final String ALL_PRODUCTS = "all";
+
+    private final Cache<String, List<ProductSummary>> pages;
+    private final Cache<Long, List<CommentDTO>> comments;
+    private final Cache<Long, List<CommentDTO>> commentPreviews;
+    private final SingleFlight<Set<Long>, Map<Long, List<CommentDTO>>> commentLoads;
+    private final SingleFlight<Set<Long>, Map<Long, List<CommentDTO>>> previewLoads;
+
+    // Generaciones de invalidación; un producto sin entrada está en la generación 0
+    private final AtomicLong pageGeneration = new AtomicLong();
+    private final ConcurrentMap<Long, Long> commentGenerations = new ConcurrentHashMap<>();
+
+    public CatalogCache(MeterRegistry meterRegistry,
+                        @Value("${catalog.cache.max-pages:500}") long maxPages,
+                        @Value("${catalog.cache.max-comment-lists:10000}") long maxCommentLists,
+                        @Value("${catalog.cache.ttl:5m}") Duration ttl) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.comments = Caffeine.newBuilder()
+                .maximumSize(maxCommentLists)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.commentPreviews = Caffeine.newBuilder()
+                .maximumSize(maxCommentLists)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.commentLoads = new SingleFlight<>("catalog.comments", meterRegistry);
+        this.previewLoads = new SingleFlight<>("catalog.comment-previews", meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "catalog.pages");
+        CaffeineCacheMetrics.monitor(meterRegistry, comments, "catalog.comments");
+        CaffeineCacheMetrics.monitor(meterRegistry, commentPreviews, "catalog.comment-previews");
+    }
+
+    /**
+     * Clave de una página keyset: cursor vacío = primera página.
+     */
+    public static String pageKey(String cursor, int size) {
+        return (cursor == null ? "" : cursor) + "|" + size;
+    }
+
+    /**
+     * Caffeine ejecuta el loader dentro de compute: las peticiones
+     * concurrentes de la misma página esperan a una única consulta.
+     */
+    public List<ProductSummary> getPage(String key, Supplier<List<ProductSummary>> loader) {
+        long generation = pageGeneration.get();
+        List<ProductSummary> page = pages.get(key, k -> List.copyOf(loader.get()));
+        if (pageGeneration.get() != generation) {
+            // Se invalidó mientras se cargaba: puede ser anterior al cambio
+            pages.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Devuelve los comentarios de varios productos; los que no estén en caché
+     * se cargan juntos con una única llamada al loader.
+     */
+    public Map<Long, List<CommentDTO>> getComments(Collection<Long> productIds,
+                                                   Function<Set<? extends Long>, Map<Long, List<CommentDTO>>> loader) {
+        return getAll(comments, commentLoads, productIds, loader);
+    }
+
+    /**
+     * Igual que getComments pero para las vistas previas (últimos N comentarios).
+     */
+    public Map<Long, List<CommentDTO>> getCommentPreviews(Collection<Long> productIds,
+                                                          Function<Set<? extends Long>, Map<Long, List<CommentDTO>>> loader) {
+        return getAll(commentPreviews, previewLoads, productIds, loader);
+    }
+
+    /**
+     * Como Cache.getAll, pero las peticiones concurrentes a las que les faltan
+     * los mismos productos comparten una sola consulta (Caffeine no agrupa las
+     * cargas masivas; sí las individuales de getPage).
+     */
+    private Map<Long, List<CommentDTO>> getAll(Cache<Long, List<CommentDTO>> cache,
+                                                      SingleFlight<Set<Long>, Map<Long, List<CommentDTO>>> loads,
+                                                      Collection<Long> productIds,
+                                                      Function<Set<? extends Long>, Map<Long, List<CommentDTO>>> loader) {
+        Map<Long, List<CommentDTO>> result = new HashMap<>(cache.getAllPresent(productIds));
+        if (result.size() == productIds.size()) {
+            return result;
+        }
+
+        Set<Long> missing = new HashSet<>(productIds);
+        missing.removeAll(result.keySet());
+        Map<Long, List<CommentDTO>> loaded = loads.load(Set.copyOf(missing), () -> {
+            Map<Long, Long> generations = new HashMap<>();
+            for (Long id : missing) {
+                generations.put(id, commentGenerations.getOrDefault(id, 0L));
+            }
+            Map<Long, List<CommentDTO>> values = loader.apply(missing);
+            cache.putAll(values);
+            values.forEach((id, value) -> {
+                Long generation = generations.get(id);
+                if (generation == null || generation != commentGenerations.getOrDefault(id, 0L)) {
+                    cache.asMap().remove(id, value);
+                }
+            });
+            return values;
+        });
+        result.putAll(loaded);
+        return result;
+    }
+
+    // -----------------------------
+    // Invalidación
+    // -----------------------------
+
+    /**
+     * Un producto nuevo es el más reciente: solo cambian las primeras
+     * páginas y la lista completa; las páginas con cursor siguen igual.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCreated(ProductCreatedEvent event) {
+        pageGeneration.incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> key.startsWith("|") || key.equals(ALL_PRODUCTS));
+    }
+
+    /**
+     * Una página keyset solo cambia si contenía el producto eliminado.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        Long id = event.getProductId();
+        invalidatePagesContaining(id);
+        invalidateComments(id);
+    }
+
+    /**
+     * Cambian los comentarios y el contador commentCount del producto.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentsChanged(CommentsChangedEvent event) {
+        Long id = event.getProductId();
+        invalidatePagesContaining(id);
+        invalidateComments(id);
+    }
+
+    /**
+     * Cambia hasImage del producto (imagen aprobada o retirada por el antivirus).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductImageStatusChanged(ProductImageStatusChangedEvent event) {
+        invalidatePagesContaining(event.getProductId());
+    }
+
+    private void invalidatePagesContaining(Long productId) {
+        pageGeneration.incrementAndGet();
+        pages.asMap().values().removeIf(page -> page.stream().anyMatch(p -> productId.equals(p.getId())));
+    }
+
+    private void invalidateComments(Long productId) {
+        commentGenerations.merge(productId, 1L, Long::sum);
+        comments.invalidate(productId);
+        commentPreviews.invalidate(productId);
+    }
+}
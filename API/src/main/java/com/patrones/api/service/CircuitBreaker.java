@@ -0,0 +1,73 @@
+package com.patrones.api.service;
+
+/**
+ * Circuit breaker mínimo para dependencias de red: tras
+ * {@code failureThreshold} fallos seguidos se abre y rechaza llamadas durante
+ * {@code openDurationMs}; después deja pasar una sola llamada de prueba, que
+ * lo cierra si va bien o lo vuelve a abrir si falla.
+ * <p>
+ * Quien obtiene permiso con tryAcquire() debe informar siempre del resultado
+ * con onSuccess(), onFailure() u onAborted().
+ */
+public class CircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDurationMs * 1_000_000L;
+    }
+
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt >= openDurationNanos) {
+                    state = State.HALF_OPEN; // Esta llamada es la de prueba
+                    return true;
+                }
+                return false;
+            default:
+                return false; // Ya hay una llamada de prueba en curso
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * La llamada terminó sin decir nada sobre la dependencia (p. ej. falló al
+     * leer los datos a enviar). Si era la de prueba, la siguiente lo será.
+     */
+    public synchronized void onAborted() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * true si ahora mismo se rechazarían las llamadas.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.HALF_OPEN
+                || (state == State.OPEN && System.nanoTime() - openedAt < openDurationNanos);
+    }
+}
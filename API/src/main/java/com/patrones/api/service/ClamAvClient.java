@@ -0,0 +1,423 @@
+package com.patrones.api.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente de clamd con un pool de sesiones persistentes (zIDSESSION).
+ * <p>
+ * Cada sesión es una conexión TCP abierta sobre la que se envían sucesivos
+ * comandos zINSTREAM; clamd responde "&lt;id&gt;: &lt;respuesta&gt;\0". Así se evita
+ * abrir un socket (y que clamd arranque un hilo) por cada imagen. Las sesiones
+ * inactivas se validan con zPING antes de reutilizarlas y las que fallan se
+ * cierran y se sustituyen por una conexión nueva.
+ * <p>
+ * Un circuit breaker corta las llamadas tras varios fallos seguidos: mientras
+ * está abierto se lanza {@link UnavailableException} sin tocar la red, en vez
+ * de esperar los timeouts de conexión y lectura en cada subida.
+ */
+@Service
+public class ClamAvClient {
+
+    private static final Logger log = LoggerFactory.getLogger(ClamAvClient.class);
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final long validateAfterIdleMs;
+    private final int chunkSize;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Session> idle = new LinkedBlockingQueue<>();
+    private final CircuitBreaker breaker;
+    private volatile boolean closed;
+
+    public ClamAvClient(@Value("${clamav.host:clamav}") String host,
+                        @Value("${clamav.port:3310}") int port,
+                        @Value("${clamav.pool-size:4}") int poolSize,
+                        @Value("${clamav.connect-timeout-ms:2000}") int connectTimeoutMs,
+                        @Value("${clamav.read-timeout-ms:5000}") int readTimeoutMs,
+                        @Value("${clamav.validate-after-idle-ms:10000}") long validateAfterIdleMs,
+                        @Value("${clamav.chunk-size:65536}") int chunkSize,
+                        @Value("${clamav.circuit.failure-threshold:5}") int failureThreshold,
+                        @Value("${clamav.circuit.open-duration-ms:30000}") long openDurationMs) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.chunkSize = chunkSize;
+        this.permits = new Semaphore(poolSize, true);
+        this.breaker = new CircuitBreaker(failureThreshold, openDurationMs);
+    }
+
+    /**
+     * Escanea los bytes y devuelve la respuesta de clamd sin el id de sesión,
+     * p. ej. "stream: OK" o "stream: Eicar-Test-Signature FOUND".
+     */
+    public String scan(byte[] data) throws IOException {
+        return scan(() -> new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Escanea el contenido leyéndolo directamente del stream (p. ej.
+     * MultipartFile::getInputStream), sin copiarlo entero en memoria. La
+     * fuente se abre de nuevo si hay que reintentar con otra conexión.
+     */
+    public String scan(StreamSource source) throws IOException {
+        return guarded(() -> doScan(source));
+    }
+
+    /**
+     * true solo si la respuesta de scan es exactamente un "OK" de clamd. No
+     * basta con que contenga "OK": el nombre de una firma puede llevarlo
+     * ("stream: Win.Trojan.OKBot FOUND").
+     */
+    public static boolean isClean(String reply) {
+        return reply != null && reply.endsWith(": OK");
+    }
+
+    private String doScan(StreamSource source) throws IOException {
+        acquire();
+        try {
+            Session session = borrow();
+            try {
+                return release(session, session.instream(source));
+            } catch (IOException e) {
+                session.close();
+                // Sin reintento si la sesión era nueva, si falló la fuente (otra
+                // conexión no lo arregla) o si clamd tardó en responder (otro
+                // intento duplicaría la espera)
+                if (!session.reused || e instanceof SourceException || e instanceof SocketTimeoutException) {
+                    throw e;
+                }
+                // clamd pudo cerrar la sesión (IdleTimeout, reinicio): un reintento con conexión nueva
+                log.debug("Sesión de clamd caída, reconectando: {}", e.getMessage());
+                Session fresh = connect();
+                try {
+                    return release(fresh, fresh.instream(source));
+                } catch (IOException retryError) {
+                    fresh.close();
+                    throw retryError;
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Comprueba que clamd responde (zPING → PONG) usando una sesión del pool.
+     */
+    public boolean ping() {
+        try {
+            return "PONG".equals(command("PING"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Versión del motor y de la base de firmas, p. ej. "ClamAV 1.0.5/27431"
+     * a partir de "ClamAV 1.0.5/27431/Tue Oct 14 08:23:01 2025". Cambia cada
+     * vez que freshclam carga firmas nuevas.
+     */
+    public String signatureVersion() throws IOException {
+        String reply = command("VERSION");
+        int lastSlash = reply.lastIndexOf('/');
+        return lastSlash > reply.indexOf('/') ? reply.substring(0, lastSlash) : reply;
+    }
+
+    /**
+     * true mientras el circuito está abierto (clamd se considera caído).
+     */
+    public boolean isUnavailable() {
+        return breaker.isOpen();
+    }
+
+    private String command(String command) throws IOException {
+        return guarded(() -> doCommand(command));
+    }
+
+    private String doCommand(String command) throws IOException {
+        acquire();
+        try {
+            Session session = borrow();
+            try {
+                return release(session, session.command(command));
+            } catch (IOException e) {
+                session.close();
+                throw e;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @FunctionalInterface
+    public interface StreamSource {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ClamdCall {
+        String call() throws IOException;
+    }
+
+    /**
+     * Ejecuta la llamada a través del circuit breaker. Cuenta como fallo
+     * cualquier error de E/S, incluido no conseguir sesión a tiempo (clamd
+     * lento), salvo los de lectura de la fuente, que no dicen nada de clamd.
+     */
+    private String guarded(ClamdCall call) throws IOException {
+        if (!breaker.tryAcquire()) {
+            throw new UnavailableException("ClamAV no disponible (circuito abierto)");
+        }
+        try {
+            String reply = call.call();
+            breaker.onSuccess();
+            return reply;
+        } catch (SourceException e) {
+            breaker.onAborted();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * clamd no está disponible y no se ha intentado la llamada.
+     */
+    public static class UnavailableException extends IOException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * No se pudo leer el contenido a escanear (p. ej. el fichero temporal del
+     * multipart ya no existe). No es un fallo de clamd.
+     */
+    public static class SourceException extends IOException {
+        public SourceException(IOException cause) {
+            super("No se pudo leer el contenido a escanear: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!permits.tryAcquire(readTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No hay conexiones libres con ClamAV");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando una conexión con ClamAV", e);
+        }
+    }
+
+    /**
+     * Sesión inactiva (validada si llevaba tiempo sin usarse) o una nueva.
+     */
+    private Session borrow() throws IOException {
+        Session session;
+        while ((session = idle.poll()) != null) {
+            if (System.currentTimeMillis() - session.lastUsed < validateAfterIdleMs) {
+                return session;
+            }
+            try {
+                if ("PONG".equals(session.command("PING"))) {
+                    return session;
+                }
+            } catch (IOException e) {
+                log.debug("Sesión de clamd inactiva descartada: {}", e.getMessage());
+            }
+            session.close();
+        }
+        return connect();
+    }
+
+    /**
+     * Devuelve la sesión al pool si sigue siendo utilizable.
+     * clamd cierra la conexión tras una respuesta de error.
+     */
+    private String release(Session session, String reply) {
+        if (closed || reply.endsWith("ERROR")) {
+            session.close();
+        } else {
+            session.reused = true;
+            session.lastUsed = System.currentTimeMillis();
+            idle.offer(session);
+        }
+        return reply;
+    }
+
+    private Session connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socket.setSoTimeout(readTimeoutMs);
+            socket.setTcpNoDelay(true);
+            Session session = new Session(socket, chunkSize);
+            session.write("IDSESSION");
+            return session;
+        } catch (IOException e) {
+            socket.close();
+            throw new IOException("Error al conectar o comunicarse con ClamAV: " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Session session;
+        while ((session = idle.poll()) != null) {
+            session.end();
+        }
+    }
+
+    // -----------------------------
+    // Sesión zIDSESSION
+    // -----------------------------
+    private static final class Session {
+
+        private static final byte[] END_OF_STREAM = new byte[4];
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+        private int nextId = 1;
+        private boolean reused;
+        private long lastUsed = System.currentTimeMillis();
+
+        // Trama INSTREAM reutilizable: 4 bytes de longitud + chunk
+        private final byte[] frame;
+        private final int chunkSize;
+
+        Session(Socket socket, int chunkSize) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.in = socket.getInputStream();
+            this.chunkSize = chunkSize;
+            this.frame = new byte[4 + chunkSize];
+        }
+
+        String command(String command) throws IOException {
+            write(command);
+            out.flush();
+            return readReply();
+        }
+
+        /**
+         * Cada trama se escribe con una sola llamada; todas salvo la última
+         * van llenas, así que la cabecera solo se recodifica al final.
+         */
+        String instream(StreamSource source) throws IOException {
+            InputStream data;
+            try {
+                data = source.open();
+            } catch (IOException e) {
+                throw new SourceException(e);
+            }
+            try {
+                write("INSTREAM");
+                putLength(chunkSize);
+                int read;
+                while ((read = readChunk(data)) > 0) {
+                    if (read < chunkSize) {
+                        putLength(read);
+                    }
+                    out.write(frame, 0, 4 + read);
+                }
+                out.write(END_OF_STREAM);
+                out.flush();
+            } finally {
+                try {
+                    data.close();
+                } catch (IOException ignored) {
+                    // Ya se leyó todo lo necesario
+                }
+            }
+            return readReply();
+        }
+
+        private int readChunk(InputStream data) throws SourceException {
+            try {
+                return data.readNBytes(frame, 4, chunkSize);
+            } catch (IOException e) {
+                throw new SourceException(e);
+            }
+        }
+
+        private void putLength(int length) {
+            frame[0] = (byte) (length >>> 24);
+            frame[1] = (byte) (length >>> 16);
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+        }
+
+        void write(String command) throws IOException {
+            out.write(('z' + command + '\0').getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Lee "&lt;id&gt;: &lt;respuesta&gt;\0" y comprueba que el id es el del comando enviado.
+         */
+        private String readReply() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != 0) {
+                if (b == -1) {
+                    throw new EOFException("ClamAV cerró la conexión");
+                }
+                buffer.write(b);
+            }
+            String reply = buffer.toString(StandardCharsets.US_ASCII);
+
+            int id = nextId++;
+            String prefix = id + ": ";
+            if (!reply.startsWith(prefix)) {
+                throw new IOException("Respuesta inesperada de ClamAV: " + reply);
+            }
+            return reply.substring(prefix.length()).trim();
+        }
+
+        void end() {
+            try {
+                write("END");
+                out.flush();
+            } catch (IOException ignored) {
+                // Se cierra de todas formas
+            }
+            close();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nada que hacer
+            }
+        }
+    }
+}
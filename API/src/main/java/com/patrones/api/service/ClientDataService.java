@@ -0,0 +1,51 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.ClientData;
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.repository.ClientDataRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Objects;
+
+@Service
+public class ClientDataService {
+
+    private final ClientDataRepository clientDataRepository;
+    private final ImageReferences imageReferences;
+    private final ImageQuarantine imageQuarantine;
+
+    public ClientDataService(ClientDataRepository clientDataRepository,
+                             ImageReferences imageReferences,
+                             ImageQuarantine imageQuarantine) {
+        this.clientDataRepository = clientDataRepository;
+        this.imageReferences = imageReferences;
+        this.imageQuarantine = imageQuarantine;
+    }
+
+    /**
+     * Guarda el cliente con su imagen de perfil (o sin ella si imageBytes es
+     * null). La imagen en cuarentena se encola en la misma transacción que
+     * guarda la referencia; la imagen anterior se libera tras el commit si
+     * nadie más la usa.
+     */
+    @Transactional
+    public ClientData saveWithImage(ClientData client, byte[] imageBytes, ImageStatus status) {
+        String previous = client.getImagenSha256();
+
+        client.setImagenSha256(imageBytes != null ? imageReferences.storeForTransaction(imageBytes) : null);
+        client.setImagenUpdatedAt(imageBytes != null ? LocalDateTime.now() : null);
+        client.setImagenStatus(imageBytes != null ? status : null);
+        ClientData saved = clientDataRepository.save(client);
+
+        if (saved.getImagenStatus() == ImageStatus.PENDING_SCAN) {
+            imageQuarantine.enqueue(saved.getImagenSha256());
+        }
+        if (previous != null && !Objects.equals(previous, saved.getImagenSha256())) {
+            imageReferences.releaseAfterCommit(Collections.singletonList(previous));
+        }
+        return saved;
+    }
+}
@@ -0,0 +1,47 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.ImageBlob;
+import com.patrones.api.repository.ImageBlobRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Backend alternativo que guarda las imágenes en la tabla image_blobs
+ * (bytea), útil cuando no hay un disco persistente compartido.
+ */
+@Service
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "database")
+public class DatabaseImageStorage implements ImageStorage {
+
+    private final ImageBlobRepository imageBlobRepository;
+
+    public DatabaseImageStorage(ImageBlobRepository imageBlobRepository) {
+        this.imageBlobRepository = imageBlobRepository;
+    }
+
+    @Override
+    public void put(String sha256, byte[] data) {
+        if (!imageBlobRepository.existsById(sha256)) {
+            imageBlobRepository.save(new ImageBlob(sha256, data));
+        }
+    }
+
+    @Override
+    public Optional<Resource> get(String sha256) {
+        if (sha256 == null) {
+            return Optional.empty();
+        }
+        return imageBlobRepository.findData(sha256).map(ByteArrayResource::new);
+    }
+
+    @Override
+    public void delete(String sha256) {
+        if (sha256 != null) {
+            imageBlobRepository.deleteById(sha256);
+        }
+    }
+}
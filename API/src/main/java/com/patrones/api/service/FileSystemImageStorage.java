@@ -0,0 +1,102 @@
+package com.patrones.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Guarda cada imagen en un fichero cuyo nombre es su SHA-256, repartido en
+ * dos niveles de directorios (ab/cd/abcd...). Los ficheros se sirven con
+ * sendfile desde la caché de páginas del sistema operativo, sin copiarlos
+ * al heap (ver ImageResponses).
+ */
+@Service
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStorage implements ImageStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemImageStorage.class);
+
+    // Solo hashes válidos: evita que un valor manipulado salga del directorio raíz
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public FileSystemImageStorage(@Value("${images.storage.path:./data/images}") String path) throws IOException {
+        this.root = Paths.get(path).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        log.info("Imágenes almacenadas en {}", root);
+    }
+
+    @Override
+    public void put(String sha256, byte[] data) {
+        Path target = pathOf(sha256);
+        if (Files.exists(target)) {
+            return; // Mismo contenido ya almacenado
+        }
+
+        try {
+            Files.createDirectories(target.getParent());
+            // Se escribe en un temporal y se renombra: nunca se sirve un fichero a medias
+            Path temp = Files.createTempFile(target.getParent(), sha256, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(data);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(true);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al guardar la imagen " + sha256, e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> get(String sha256) {
+        if (!isValid(sha256)) {
+            return Optional.empty();
+        }
+        Path path = pathOf(sha256);
+        return Files.isRegularFile(path) ? Optional.of(new FileSystemResource(path)) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String sha256) {
+        if (!isValid(sha256)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pathOf(sha256));
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar la imagen {}: {}", sha256, e.getMessage());
+        }
+    }
+
+    private static boolean isValid(String sha256) {
+        return sha256 != null && SHA256_HEX.matcher(sha256).matches();
+    }
+
+    private Path pathOf(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+}
@@ -0,0 +1,261 @@
+package com.patrones.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.ProductImageVariantRepository;
+import com.patrones.api.repository.ProductImageVariantRepository.VariantMetadata;
+import com.patrones.api.repository.ProductRepository;
+import com.patrones.api.repository.ProductRepository.ImageView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caché del endpoint de imágenes de producto, en dos niveles:
+ * <ul>
+ *   <li>Metadatos (hash, tipo, fecha) por producto y variante, en el heap,
+ *       para no consultar la BD en cada petición.</li>
+ *   <li>Contenido por SHA-256 fuera del heap (ByteBuffer directos), con un
+ *       presupuesto en bytes y desalojo W-TinyLFU. Solo con
+ *       images.storage.type=database, donde cada lectura es una consulta a
+ *       image_blobs. Con el almacén en disco (el valor por defecto) no se
+ *       reserva: la caché de páginas del sistema y sendfile ya sirven los
+ *       ficheros sin pasar por Java, y copiarlos aquí solo duplicaría memoria.</li>
+ * </ul>
+ * Las métricas se publican como images.metadata, images.variant-metadata e
+ * images.content (cache.gets hit/miss, cache.evictions) e images.content.bytes
+ * (estas dos, solo con la caché de contenido activa).
+ */
+@Service
+public class ImageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageCache.class);
+
+    private final ImageStorage imageStorage;
+    private final ProductRepository productRepository;
+    private final ProductImageVariantRepository variantRepository;
+
+    private final Cache<Long, ImageView> products;
+    private final Cache<String, VariantMetadata> variants;
+    private final boolean contentCached;
+    private final Cache<String, ByteBuffer> content;
+    private final long maxEntryBytes;
+    private final SingleFlight<String, Optional<Resource>> contentLoads;
+
+    public ImageCache(ImageStorage imageStorage,
+                      ProductRepository productRepository,
+                      ProductImageVariantRepository variantRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${images.cache.max-metadata:10000}") long maxMetadata,
+                      @Value("${images.cache.max-bytes:64MB}") DataSize maxBytes,
+                      @Value("${images.cache.max-entry-bytes:2MB}") DataSize maxEntryBytes,
+                      @Value("${images.cache.ttl:1h}") Duration ttl,
+                      @Value("${images.storage.type:filesystem}") String storageType) {
+        this.imageStorage = imageStorage;
+        this.contentCached = "database".equals(storageType);
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.maxEntryBytes = maxEntryBytes.toBytes();
+
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxMetadata)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        this.variants = Caffeine.newBuilder()
+                .maximumSize(maxMetadata)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        // El peso es el tamaño del buffer: el presupuesto se mide en bytes
+        this.content = Caffeine.newBuilder()
+                .maximumWeight(maxBytes.toBytes())
+                .weigher((String sha256, ByteBuffer buffer) -> buffer.capacity())
+                .recordStats()
+                .build();
+
+        this.contentLoads = new SingleFlight<>("images.content", meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "images.metadata");
+        CaffeineCacheMetrics.monitor(meterRegistry, variants, "images.variant-metadata");
+        if (contentCached) {
+            CaffeineCacheMetrics.monitor(meterRegistry, content, "images.content");
+            Gauge.builder("images.content.bytes", content,
+                            c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                    .description("Bytes de imagen retenidos fuera del heap")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Metadatos de la imagen original de un producto; vacío si no existe, no
+     * tiene imagen o está en cuarentena (no se cachea la ausencia).
+     */
+    public Optional<ImageView> productImage(Long productId) {
+        return Optional.ofNullable(products.get(productId,
+                id -> productRepository.findImageViewById(id)
+                        .filter(view -> view.getImageSha256() != null)
+                        .filter(view -> view.getImageStatus() != ImageStatus.PENDING_SCAN)
+                        .orElse(null)));
+    }
+
+    /**
+     * Metadatos de una variante; vacío mientras no se haya generado (no se cachea la ausencia).
+     */
+    public Optional<VariantMetadata> variant(Long productId, String variant) {
+        return Optional.ofNullable(variants.get(variantKey(productId, variant),
+                key -> variantRepository.findMetadata(productId, variant).orElse(null)));
+    }
+
+    /**
+     * Contenido de la imagen. Con el almacén en disco se devuelve el fichero
+     * tal cual; con la BD se copia una vez a un buffer directo y las
+     * siguientes peticiones se sirven desde memoria nativa.
+     */
+    public Optional<Resource> content(String sha256) {
+        if (!contentCached) {
+            return imageStorage.get(sha256);
+        }
+        ByteBuffer cached = content.getIfPresent(sha256);
+        if (cached != null) {
+            return Optional.of(new OffHeapResource(sha256, cached));
+        }
+        // Varios fallos simultáneos del mismo hash comparten una sola lectura del almacén
+        return contentLoads.load(sha256, () -> loadContent(sha256));
+    }
+
+    private Optional<Resource> loadContent(String sha256) {
+        Optional<Resource> stored = imageStorage.get(sha256);
+        if (stored.isEmpty()) {
+            return stored;
+        }
+
+        try {
+            Resource resource = stored.get();
+            long length = resource.contentLength();
+            if (length > maxEntryBytes) {
+                return stored;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+            try (InputStream in = resource.getInputStream()) {
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1 && buffer.hasRemaining()) {
+                    buffer.put(chunk, 0, Math.min(read, buffer.remaining()));
+                }
+            }
+            if (buffer.hasRemaining()) {
+                // El stream acabó antes de contentLength: no se cachea una imagen truncada
+                log.warn("Imagen {} más corta de lo esperado ({} de {} bytes), se sirve sin caché",
+                        sha256, buffer.position(), length);
+                return stored;
+            }
+            buffer.flip();
+            ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+            content.put(sha256, readOnly);
+            return Optional.of(new OffHeapResource(sha256, readOnly));
+        } catch (IOException e) {
+            log.warn("No se pudo cachear la imagen {}: {}", sha256, e.getMessage());
+            return stored;
+        }
+    }
+
+    /**
+     * El contenido se eliminó del almacén (ver ImageReferences).
+     */
+    public void invalidateContent(String sha256) {
+        content.invalidate(sha256);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        Long id = event.getProductId();
+        products.invalidate(id);
+        String prefix = id + "/";
+        variants.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static String variantKey(Long productId, String variant) {
+        return productId + "/" + variant;
+    }
+
+    /**
+     * Resource de solo lectura sobre un buffer directo. Cada lectura usa una
+     * vista propia (duplicate), así varias respuestas comparten el buffer.
+     */
+    private static final class OffHeapResource extends AbstractResource {
+
+        private final String sha256;
+        private final ByteBuffer buffer;
+
+        OffHeapResource(String sha256, ByteBuffer buffer) {
+            this.sha256 = sha256;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Imagen en memoria nativa [" + sha256 + "]";
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            ByteBuffer view = buffer.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return view.hasRemaining() ? view.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!view.hasRemaining()) {
+                        return -1;
+                    }
+                    int n = Math.min(len, view.remaining());
+                    view.get(b, off, n);
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) {
+                    int skipped = (int) Math.max(0, Math.min(n, view.remaining()));
+                    view.position(view.position() + skipped);
+                    return skipped;
+                }
+
+                @Override
+                public int available() {
+                    return view.remaining();
+                }
+            };
+        }
+    }
+}
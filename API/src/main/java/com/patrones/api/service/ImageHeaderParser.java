@@ -0,0 +1,136 @@
+package com.patrones.api.service;
+
+/**
+ * Lectura de formato y dimensiones a partir de la cabecera de la imagen, sin
+ * decodificarla. Se usa para rechazar antes del escaneo (y antes de que
+ * ImageIO genere variantes) ficheros que no son JPEG/PNG/WebP reales o cuyas
+ * dimensiones delatan una bomba de descompresión.
+ */
+public final class ImageHeaderParser {
+
+    public record ImageHeader(String mimeType, int width, int height) {
+
+        public long pixels() {
+            return (long) width * height;
+        }
+    }
+
+    private ImageHeaderParser() {}
+
+    /**
+     * Formato y dimensiones de los primeros {@code length} bytes, o null si no
+     * es un JPEG, PNG o WebP reconocible dentro de ese tramo.
+     */
+    public static ImageHeader parse(byte[] data, int length) {
+        if (length >= 3 && u8(data, 0) == 0xFF && u8(data, 1) == 0xD8 && u8(data, 2) == 0xFF) {
+            return parseJpeg(data, length);
+        }
+        if (length >= 8 && u8(data, 0) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G'
+                && data[4] == 0x0D && data[5] == 0x0A && data[6] == 0x1A && data[7] == 0x0A) {
+            return parsePng(data, length);
+        }
+        if (length >= 12 && data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F'
+                && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P') {
+            return parseWebp(data, length);
+        }
+        return null;
+    }
+
+    // -----------------------------
+    // PNG: el primer chunk es IHDR (ancho y alto big-endian)
+    // -----------------------------
+    private static ImageHeader parsePng(byte[] data, int length) {
+        if (length < 24 || data[12] != 'I' || data[13] != 'H' || data[14] != 'D' || data[15] != 'R') {
+            return null;
+        }
+        return header("image/png", s32be(data, 16), s32be(data, 20));
+    }
+
+    // -----------------------------
+    // JPEG: se saltan segmentos hasta el SOFn
+    // -----------------------------
+    private static ImageHeader parseJpeg(byte[] data, int length) {
+        int pos = 2;
+        while (pos + 1 < length) {
+            if (u8(data, pos) != 0xFF) {
+                return null;
+            }
+            int marker = u8(data, pos + 1);
+            if (marker == 0xFF) {
+                pos++; // Relleno entre segmentos
+                continue;
+            }
+            pos += 2;
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // Marcadores sin longitud
+            }
+            if (marker == 0xD9 || marker == 0xDA || pos + 2 > length) {
+                return null; // Fin de imagen o datos de escaneo sin SOF
+            }
+            int segmentLength = u16be(data, pos);
+            if (segmentLength < 2) {
+                return null;
+            }
+            boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (startOfFrame) {
+                // longitud(2) precisión(1) alto(2) ancho(2)
+                if (pos + 7 > length) {
+                    return null;
+                }
+                return header("image/jpeg", u16be(data, pos + 5), u16be(data, pos + 3));
+            }
+            pos += segmentLength;
+        }
+        return null;
+    }
+
+    // -----------------------------
+    // WebP: VP8 (con pérdida), VP8L (sin pérdida) o VP8X (extendido)
+    // -----------------------------
+    private static ImageHeader parseWebp(byte[] data, int length) {
+        if (length < 30) {
+            return null;
+        }
+        if (data[12] == 'V' && data[13] == 'P' && data[14] == '8' && data[15] == ' ') {
+            // Etiqueta de frame (3) + código de inicio 9D 01 2A
+            if (u8(data, 23) != 0x9D || u8(data, 24) != 0x01 || u8(data, 25) != 0x2A) {
+                return null;
+            }
+            return header("image/webp", u16le(data, 26) & 0x3FFF, u16le(data, 28) & 0x3FFF);
+        }
+        if (data[12] == 'V' && data[13] == 'P' && data[14] == '8' && data[15] == 'L') {
+            if (u8(data, 20) != 0x2F) {
+                return null;
+            }
+            int bits = u8(data, 21) | u8(data, 22) << 8 | u8(data, 23) << 16 | u8(data, 24) << 24;
+            return header("image/webp", (bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+        }
+        if (data[12] == 'V' && data[13] == 'P' && data[14] == '8' && data[15] == 'X') {
+            int width = (u8(data, 24) | u8(data, 25) << 8 | u8(data, 26) << 16) + 1;
+            int height = (u8(data, 27) | u8(data, 28) << 8 | u8(data, 29) << 16) + 1;
+            return header("image/webp", width, height);
+        }
+        return null;
+    }
+
+    private static ImageHeader header(String mimeType, int width, int height) {
+        return width > 0 && height > 0 ? new ImageHeader(mimeType, width, height) : null;
+    }
+
+    private static int u8(byte[] data, int pos) {
+        return data[pos] & 0xFF;
+    }
+
+    private static int u16be(byte[] data, int pos) {
+        return u8(data, pos) << 8 | u8(data, pos + 1);
+    }
+
+    private static int u16le(byte[] data, int pos) {
+        return u8(data, pos) | u8(data, pos + 1) << 8;
+    }
+
+    private static int s32be(byte[] data, int pos) {
+        return u16be(data, pos) << 16 | u16be(data, pos + 2);
+    }
+}
@@ -0,0 +1,156 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.entity.PendingImageScan;
+import com.patrones.api.event.ProductImageStatusChangedEvent;
+import com.patrones.api.repository.ClientDataRepository;
+import com.patrones.api.repository.PendingImageScanRepository;
+import com.patrones.api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cuarentena de imágenes aceptadas mientras ClamAV estaba caído
+ * (clamav.quarantine.enabled). El contenido ya está en el almacén pero sus
+ * referencias quedan en PENDING_SCAN, ocultas, y su hash en la tabla
+ * pending_image_scans. Una tarea periódica reescanea la cola en cuanto el
+ * circuito de ClamAvClient vuelve a cerrarse: si el contenido está limpio se
+ * publica (y se generan sus variantes); si no, se retira de los productos y
+ * clientes que lo usaban.
+ */
+@Service
+public class ImageQuarantine {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageQuarantine.class);
+
+    private final PendingImageScanRepository pendingRepository;
+    private final ProductRepository productRepository;
+    private final ClientDataRepository clientDataRepository;
+    private final ClamAvClient clamAvClient;
+    private final ScanVerdictCache verdictCache;
+    private final ImageStorage imageStorage;
+    private final ImageReferences imageReferences;
+    private final ImageVariantService imageVariantService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public ImageQuarantine(PendingImageScanRepository pendingRepository,
+                           ProductRepository productRepository,
+                           ClientDataRepository clientDataRepository,
+                           ClamAvClient clamAvClient,
+                           ScanVerdictCache verdictCache,
+                           ImageStorage imageStorage,
+                           ImageReferences imageReferences,
+                           ImageVariantService imageVariantService,
+                           ApplicationEventPublisher eventPublisher,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${clamav.quarantine.batch-size:20}") int batchSize) {
+        this.pendingRepository = pendingRepository;
+        this.productRepository = productRepository;
+        this.clientDataRepository = clientDataRepository;
+        this.clamAvClient = clamAvClient;
+        this.verdictCache = verdictCache;
+        this.imageStorage = imageStorage;
+        this.imageReferences = imageReferences;
+        this.imageVariantService = imageVariantService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Encola el contenido para reescaneo. Debe llamarse en la misma
+     * transacción que guarda la referencia en PENDING_SCAN (ver
+     * ProductService.saveWithImage y ClientDataService.saveWithImage).
+     */
+    public void enqueue(String sha256) {
+        pendingRepository.enqueue(sha256);
+    }
+
+    // -----------------------------
+    // Reescaneo en segundo plano
+    // -----------------------------
+    @Scheduled(fixedDelayString = "${clamav.quarantine.rescan-interval-ms:30000}")
+    public void drain() {
+        if (clamAvClient.isUnavailable()) {
+            return; // Se reintenta cuando el circuito deje pasar la llamada de prueba
+        }
+        List<PendingImageScan> batch = pendingRepository.findAllByOrderByCreatedAtAsc(PageRequest.of(0, batchSize));
+        for (PendingImageScan pending : batch) {
+            if (!rescan(pending)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reescanea un contenido; false si ClamAV sigue sin responder.
+     */
+    private boolean rescan(PendingImageScan pending) {
+        String sha256 = pending.getSha256();
+        Optional<Resource> stored = imageStorage.get(sha256);
+        if (stored.isEmpty()) {
+            // Nadie lo referencia ya y ImageReferences lo borró del almacén
+            pendingRepository.deleteById(sha256);
+            return true;
+        }
+
+        String clamResponse;
+        try {
+            clamResponse = clamAvClient.scan(stored.get()::getInputStream);
+        } catch (IOException e) {
+            pending.setAttempts(pending.getAttempts() + 1);
+            pending.setLastAttemptAt(LocalDateTime.now());
+            pendingRepository.save(pending);
+            log.debug("ClamAV sigue sin responder, se reintentará la cuarentena: {}", e.getMessage());
+            return false;
+        }
+
+        boolean clean = ClamAvClient.isClean(clamResponse);
+        if (clean) {
+            // Antes de publicar: las subidas del mismo contenido ya no pasan por la cola
+            verdictCache.markClean(verdictCache.key(sha256));
+        } else {
+            log.warn("Imagen {} en cuarentena rechazada por ClamAV: {}", sha256, clamResponse);
+        }
+        transactionTemplate.executeWithoutResult(status -> resolve(sha256, clean));
+        return true;
+    }
+
+    private void resolve(String sha256, boolean clean) {
+        List<Long> productIds = productRepository.findIdsByImageSha256AndImageStatus(sha256, ImageStatus.PENDING_SCAN);
+        if (clean) {
+            if (!productIds.isEmpty()) {
+                productRepository.updateImageStatus(productIds, ImageStatus.CLEAN);
+            }
+            clientDataRepository.updateImagenStatus(sha256, ImageStatus.PENDING_SCAN, ImageStatus.CLEAN);
+            for (Long productId : productIds) {
+                imageVariantService.generateAsync(productId, sha256);
+            }
+        } else {
+            if (!productIds.isEmpty()) {
+                productRepository.clearImage(productIds);
+            }
+            clientDataRepository.clearImagen(sha256, ImageStatus.PENDING_SCAN);
+            imageReferences.releaseAfterCommit(Collections.singletonList(sha256));
+        }
+        pendingRepository.deleteById(sha256);
+        for (Long productId : productIds) {
+            eventPublisher.publishEvent(new ProductImageStatusChangedEvent(productId));
+        }
+    }
+}
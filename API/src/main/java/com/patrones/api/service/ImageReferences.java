@@ -0,0 +1,178 @@
+package com.patrones.api.service;
+
+import com.patrones.api.repository.ClientDataRepository;
+import com.patrones.api.repository.ProductImageVariantRepository;
+import com.patrones.api.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Guarda y libera imágenes del almacén. Como el almacén deduplica por
+ * contenido, un mismo hash puede pertenecer a varios productos, variantes o
+ * perfiles: solo se borra si ninguna fila lo usa.
+ * <p>
+ * Entre que se guardan los bytes y se confirma la fila que los referencia, el
+ * hash queda "fijado": una liberación concurrente del mismo contenido (otra
+ * fila que se borra) no lo elimina aunque aún no vea la fila nueva. Guardar,
+ * fijar y decidir un borrado se hacen bajo el mismo cerrojo por hash, así que
+ * o la liberación ve la fijación, o borra antes y la subida vuelve a escribir
+ * el fichero. Los cerrojos son de esta JVM: con varias instancias sobre el
+ * mismo almacén no protegen entre ellas.
+ */
+@Service
+public class ImageReferences {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final ImageStorage imageStorage;
+    private final ImageCache imageCache;
+    private final ProductRepository productRepository;
+    private final ProductImageVariantRepository variantRepository;
+    private final ClientDataRepository clientDataRepository;
+    private final TransactionTemplate newTransaction;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    public ImageReferences(ImageStorage imageStorage,
+                           ImageCache imageCache,
+                           ProductRepository productRepository,
+                           ProductImageVariantRepository variantRepository,
+                           ClientDataRepository clientDataRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.imageStorage = imageStorage;
+        this.imageCache = imageCache;
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.clientDataRepository = clientDataRepository;
+        // Tras el commit los recursos de la transacción siguen ligados al hilo:
+        // las consultas y borrados de release necesitan una transacción propia
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Guarda la imagen de una fila que se guarda en la transacción actual.
+     * El hash queda fijado hasta que la transacción termina; si no llega a
+     * confirmarse, la imagen se libera (no quedan ficheros huérfanos).
+     */
+    public String storeForTransaction(byte[] data) {
+        String sha256 = storePinned(data);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    unpin(Collections.singletonList(sha256));
+                    if (status != STATUS_COMMITTED) {
+                        releaseNow(Collections.singleton(sha256));
+                    }
+                }
+            });
+        } else {
+            unpin(Collections.singletonList(sha256));
+        }
+        return sha256;
+    }
+
+    /**
+     * Guarda la imagen y la deja fijada hasta que se llame a unpin, una vez
+     * guardada (o descartada) la fila que la referencia.
+     */
+    public String storePinned(byte[] data) {
+        String sha256 = ContentHash.sha256Hex(data);
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            pins.merge(sha256, 1, Integer::sum);
+            try {
+                imageStorage.put(sha256, data);
+            } catch (RuntimeException e) {
+                unpinOne(sha256);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sha256;
+    }
+
+    public void unpin(Collection<String> sha256s) {
+        for (String sha256 : sha256s) {
+            unpinOne(sha256);
+        }
+    }
+
+    /**
+     * Libera los hashes indicados. Si hay una transacción activa se espera a
+     * que confirme, para que el recuento ya no vea las filas eliminadas.
+     */
+    public void releaseAfterCommit(Collection<String> sha256s) {
+        Set<String> candidates = new LinkedHashSet<>(sha256s);
+        candidates.removeIf(Objects::isNull);
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(candidates);
+                }
+            });
+        } else {
+            releaseNow(candidates);
+        }
+    }
+
+    private void releaseNow(Set<String> sha256s) {
+        newTransaction.executeWithoutResult(status -> {
+            for (String sha256 : sha256s) {
+                release(sha256);
+            }
+        });
+    }
+
+    private void release(String sha256) {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            if (!pins.containsKey(sha256) && !isReferenced(sha256)) {
+                imageStorage.delete(sha256);
+                imageCache.invalidateContent(sha256);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unpinOne(String sha256) {
+        pins.computeIfPresent(sha256, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private ReentrantLock lockFor(String sha256) {
+        return locks[(sha256.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private boolean isReferenced(String sha256) {
+        return productRepository.existsByImageSha256(sha256)
+                || variantRepository.existsBySha256(sha256)
+                || clientDataRepository.existsByImagenSha256(sha256);
+    }
+}
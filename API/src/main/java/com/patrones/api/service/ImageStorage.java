@@ -0,0 +1,42 @@
+package com.patrones.api.service;
+
+import org.springframework.core.io.Resource;
+
+import java.util.Optional;
+
+/**
+ * Almacén de imágenes direccionado por contenido: cada imagen se guarda una
+ * sola vez bajo su SHA-256 (hex), que también se usa como ETag. Dos subidas
+ * con los mismos bytes comparten el mismo objeto almacenado.
+ * <p>
+ * El backend se elige con images.storage.type (filesystem | database).
+ */
+public interface ImageStorage {
+
+    /**
+     * Guarda los bytes bajo su SHA-256 (ya calculado) si no existían. Las
+     * subidas deben pasar por {@link ImageReferences}, que protege el hash
+     * frente a un borrado concurrente del mismo contenido.
+     */
+    void put(String sha256, byte[] data);
+
+    /**
+     * Guarda los bytes si no existían y devuelve su SHA-256.
+     */
+    default String put(byte[] data) {
+        String sha256 = ContentHash.sha256Hex(data);
+        put(sha256, data);
+        return sha256;
+    }
+
+    /**
+     * Contenido almacenado bajo el hash; vacío si no existe.
+     */
+    Optional<Resource> get(String sha256);
+
+    /**
+     * Elimina el contenido. Solo debe llamarse cuando ninguna fila lo referencia
+     * (ver {@link ImageReferences}).
+     */
+    void delete(String sha256);
+}
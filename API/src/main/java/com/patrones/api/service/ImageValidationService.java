@@ -1,27 +1,37 @@
 package com.patrones.api.service;
 
+import com.patrones.api.entity.ImageStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
-import java.io.*;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.nio.ByteBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class ImageValidationService {
 
-    // 🔒 Configuración del escáner antivirus
-    private static final String CLAMAV_HOST = "clamav";
-    private static final int CLAMAV_PORT = 3310;
-    private static final int SOCKET_TIMEOUT = 5000; // 5 segundos
+    private static final Logger log = LoggerFactory.getLogger(ImageValidationService.class);
 
     // 📏 Configuración de imagen
-    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5 MB
+    public static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5 MB
     private static final List<String> ALLOWED_TYPES = Arrays.asList(
             "image/jpeg",
             "image/png",
@@ -29,16 +39,170 @@ public class ImageValidationService {
             "image/jpg"
     );
 
+    // Lectura del upload: un único buffer por validación; su primera lectura es
+    // la ventana donde se buscan formato y dimensiones (los JPEG con EXIF o
+    // perfil ICC grandes tienen el SOF bastante después del inicio)
+    private static final int READ_BUFFER_SIZE = 128 * 1024;
+
+    // 📐 Dimensiones máximas leídas de la cabecera
+    private final int maxDimension;
+    private final long maxPixels;
+
+    // 🔒 Escáner antivirus (sesiones persistentes con clamd)
+    private final ClamAvClient clamAvClient;
+    private final boolean quarantineEnabled;
+    private final ScanVerdictCache verdictCache;
+
+    // 🚧 Bulkhead: los escaneos corren en hilos virtuales, como mucho
+    // max-concurrent a la vez y queue-depth esperando; el resto recibe 503
+    // (la importación masiva comparte los permisos pero espera en su lugar)
+    private final ExecutorService scanExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final Counter rejected;
+
+    public ImageValidationService(ClamAvClient clamAvClient,
+                                  ScanVerdictCache verdictCache,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${clamav.bulkhead.max-concurrent:4}") int maxConcurrent,
+                                  @Value("${clamav.bulkhead.queue-depth:50}") int queueDepth,
+                                  @Value("${images.validation.max-dimension:8000}") int maxDimension,
+                                  @Value("${images.validation.max-pixels:40000000}") long maxPixels,
+                                  @Value("${clamav.quarantine.enabled:false}") boolean quarantineEnabled) {
+        this.quarantineEnabled = quarantineEnabled;
+        this.maxDimension = maxDimension;
+        this.maxPixels = maxPixels;
+        this.clamAvClient = clamAvClient;
+        this.verdictCache = verdictCache;
+        this.admitted = new Semaphore(maxConcurrent + queueDepth);
+        this.running = new Semaphore(maxConcurrent, true);
+        this.rejected = Counter.builder("clamav.scans.rejected")
+                .description("Escaneos rechazados con 503 por bulkhead lleno")
+                .register(meterRegistry);
+        meterRegistry.gauge("clamav.scans.queued", running, Semaphore::getQueueLength);
+    }
+
     /**
-     * Valida tipo, tamaño y escanea con ClamAV.
+     * Igual que validateImage(MultipartFile) pero sin bloquear el hilo de la
+     * petición: el futuro termina con ResponseStatusException si la imagen no
+     * es válida, o con 503 inmediato si el bulkhead está lleno.
      */
-    public void validateImage(MultipartFile file) {
+    public CompletableFuture<ImageStatus> validateImageAsync(MultipartFile file) {
         if (file == null || file.isEmpty()) {
-            return; // Imagen opcional
+            return CompletableFuture.completedFuture(null); // Imagen opcional
+        }
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    "El antivirus está saturado, inténtalo de nuevo en unos segundos"
+            ));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    running.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Escaneo interrumpido", e);
+                }
+                try {
+                    return validateNow(file);
+                } finally {
+                    running.release();
+                }
+            }, scanExecutor).whenComplete((ignored, error) -> admitted.release());
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Valida tipo, tamaño y escanea con ClamAV, bloqueando hasta terminar.
+     * Pasa por el mismo bulkhead que validateImageAsync; los controladores
+     * deben usar la versión asíncrona.
+     */
+    public ImageStatus validateImage(MultipartFile file) {
+        try {
+            return validateImageAsync(file).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanExecutor.shutdownNow();
+    }
+
+    /**
+     * Valida tipo, tamaño y escanea con ClamAV.
+     * El upload se lee en streaming (getInputStream) sin copiarlo al heap:
+     * una pasada valida la cabecera y calcula el SHA-256, y solo si no
+     * hay veredicto en caché se envía a clamd en una segunda lectura.
+     */
+    private ImageStatus validateNow(MultipartFile file) {
+        checkTypeAndSize(file.getContentType(), file.getSize());
+
+        try {
+            String sha256;
+            try (InputStream in = file.getInputStream()) {
+                sha256 = inspect(file.getContentType(), in);
+            }
+            return scan(sha256, file::getInputStream);
+        } catch (IOException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Error al procesar la imagen: " + e.getMessage(),
+                    e
+            );
+        }
+    }
+
+    /**
+     * Igual que validateImage(MultipartFile), para imágenes que no llegan como
+     * parte multipart (p. ej. las del zip de la importación masiva). El
+     * escaneo ocupa los mismos permisos del bulkhead, pero en lugar de 503
+     * espera a que haya hueco: la importación no tiene un cliente al que
+     * pedirle que reintente y así no deja sin clamd a las subidas normales.
+     */
+    public ImageStatus validateImage(String contentType, byte[] data) {
+        checkTypeAndSize(contentType, data.length);
+        checkHeader(contentType, ImageHeaderParser.parse(data, data.length));
+
+        boolean admittedAcquired = false;
+        boolean runningAcquired = false;
+        try {
+            admitted.acquire();
+            admittedAcquired = true;
+            running.acquire();
+            runningAcquired = true;
+            return scan(ContentHash.sha256Hex(data), () -> new ByteArrayInputStream(data));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Escaneo interrumpido", e);
+        } catch (IOException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Error al procesar la imagen: " + e.getMessage(),
+                    e
+            );
+        } finally {
+            if (runningAcquired) {
+                running.release();
+            }
+            if (admittedAcquired) {
+                admitted.release();
+            }
         }
+    }
 
+    private void checkTypeAndSize(String contentType, long size) {
         // 🧩 Validar tipo MIME
-        String contentType = file.getContentType();
         if (contentType == null || !ALLOWED_TYPES.contains(contentType.toLowerCase())) {
             throw new ResponseStatusException(
                     HttpStatus.UNSUPPORTED_MEDIA_TYPE,
@@ -47,66 +211,99 @@ public class ImageValidationService {
         }
 
         // 📦 Validar tamaño
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (size > MAX_FILE_SIZE) {
             throw new ResponseStatusException(
                     HttpStatus.PAYLOAD_TOO_LARGE,
                     "La imagen excede el tamaño máximo permitido de 5MB"
             );
         }
+    }
 
-        // 🦠 Escanear con ClamAV
-        try {
-            byte[] imageData = file.getBytes();
-            String clamResponse = scanWithClamAV(imageData);
+    /**
+     * 🧪 El contenido tiene que ser del tipo declarado (un .exe con
+     * Content-Type image/png no llega a guardarse) y con dimensiones
+     * razonables: una bomba de descompresión pesa poco pero declara
+     * decenas de miles de píxeles de lado.
+     */
+    private void checkHeader(String contentType, ImageHeaderParser.ImageHeader header) {
+        String declared = contentType.toLowerCase().equals("image/jpg") ? "image/jpeg" : contentType.toLowerCase();
+        if (header == null || !declared.equals(header.mimeType())) {
+            throw new ResponseStatusException(
+                    HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "El contenido de la imagen no corresponde al tipo " + contentType
+            );
+        }
+        if (header.width() > maxDimension || header.height() > maxDimension || header.pixels() > maxPixels) {
+            throw new ResponseStatusException(
+                    HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Dimensiones de imagen no permitidas: " + header.width() + "x" + header.height()
+            );
+        }
+    }
+
+    /**
+     * 🦠 Escanea con ClamAV y rechaza la imagen si se detecta una amenaza.
+     * Un contenido ya escaneado como limpio con las mismas firmas no se reenvía.
+     * Con ClamAV caído, en modo cuarentena la imagen se acepta como
+     * PENDING_SCAN (quien la guarda la encola en ImageQuarantine); si no, 503.
+     */
+    private ImageStatus scan(String sha256, ClamAvClient.StreamSource content) throws IOException {
+        String verdictKey = verdictCache.key(sha256);
+        if (verdictCache.isClean(verdictKey)) {
+            return ImageStatus.CLEAN;
+        }
 
-            if (!clamResponse.contains("OK")) {
-                String virusMessage = extractVirusMessage(clamResponse);
+        String clamResponse;
+        try {
+            clamResponse = clamAvClient.scan(content);
+        } catch (IOException e) {
+            if (e instanceof ClamAvClient.SourceException) {
+                throw e; // No se pudo leer la subida: error de procesamiento, no de clamd
+            }
+            if (quarantineEnabled) {
+                log.warn("ClamAV no disponible, imagen {} en cuarentena: {}", sha256, e.getMessage());
+                return ImageStatus.PENDING_SCAN;
+            }
+            if (e instanceof ClamAvClient.UnavailableException) {
                 throw new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST,
-                        "La imagen contiene código malicioso: " + virusMessage
+                        HttpStatus.SERVICE_UNAVAILABLE,
+                        "El antivirus no está disponible, inténtalo más tarde",
+                        e
                 );
             }
-        } catch (IOException e) {
+            throw e;
+        }
+
+        if (!ClamAvClient.isClean(clamResponse)) {
+            String virusMessage = extractVirusMessage(clamResponse);
             throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Error al procesar la imagen: " + e.getMessage(),
-                    e
+                    HttpStatus.BAD_REQUEST,
+                    "La imagen contiene código malicioso: " + virusMessage
             );
         }
+        verdictCache.markClean(verdictKey);
+        return ImageStatus.CLEAN;
     }
 
+    // -----------------------------
+    // Cabecera y hash en una pasada
+    // -----------------------------
+
     /**
-     * Envía los bytes de la imagen al socket de ClamAV para escaneo.
+     * Lee la ventana de cabecera, la valida (rechazo inmediato sin seguir
+     * leyendo) y continúa con el mismo buffer calculando el SHA-256.
      */
-    private String scanWithClamAV(byte[] data) throws IOException {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(CLAMAV_HOST, CLAMAV_PORT), SOCKET_TIMEOUT);
-            socket.setSoTimeout(SOCKET_TIMEOUT);
-
-            try (OutputStream out = socket.getOutputStream();
-                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-                // Iniciar stream de ClamAV
-                out.write("zINSTREAM\0".getBytes());
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(data)) {
-                    byte[] buffer = new byte[2048];
-                    int read;
-                    while ((read = bis.read(buffer)) >= 0) {
-                        out.write(ByteBuffer.allocate(4).putInt(read).array());
-                        out.write(buffer, 0, read);
-                    }
-                }
-
-                // Indicar fin del stream
-                out.write(ByteBuffer.allocate(4).putInt(0).array());
-                out.flush();
+    private String inspect(String contentType, InputStream in) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read = in.readNBytes(buffer, 0, buffer.length);
+        checkHeader(contentType, ImageHeaderParser.parse(buffer, read));
 
-                String response = in.readLine();
-                return response != null ? response.trim() : "";
-            }
-        } catch (IOException e) {
-            throw new IOException("Error al conectar o comunicarse con ClamAV: " + e.getMessage(), e);
+        MessageDigest digest = ContentHash.newSha256();
+        while (read > 0) {
+            digest.update(buffer, 0, read);
+            read = in.read(buffer);
         }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     /**
@@ -0,0 +1,283 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.ProductImageVariant;
+import com.patrones.api.repository.ProductImageVariantRepository;
+import com.patrones.api.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera versiones redimensionadas (thumb, card, full) de las imágenes de
+ * producto, re-codificadas en JPEG, en un pool de hilos acotado.
+ * Mientras una variante no exista, el endpoint de imagen sirve el original.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final String OUTPUT_TYPE = "image/jpeg";
+    private static final float JPEG_QUALITY = 0.82f;
+
+    /**
+     * Tamaños disponibles: ancho máximo en píxeles (se conserva la proporción).
+     */
+    public enum Size {
+        THUMB(160),
+        CARD(480),
+        FULL(1200);
+
+        private final int maxWidth;
+
+        Size(int maxWidth) {
+            this.maxWidth = maxWidth;
+        }
+
+        public int getMaxWidth() { return maxWidth; }
+
+        public String key() { return name().toLowerCase(Locale.ROOT); }
+
+        /**
+         * Convierte el parámetro ?size= en un tamaño; null si es el original.
+         * @throws IllegalArgumentException si el valor no es válido
+         */
+        public static Size fromParam(String value) {
+            if (value == null || value.isBlank() || value.equalsIgnoreCase("original")) {
+                return null;
+            }
+            return Size.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int MAX_VARIANT_WIDTH = Arrays.stream(Size.values()).mapToInt(Size::getMaxWidth).max().orElseThrow();
+
+    private final ProductImageVariantRepository variantRepository;
+    private final ProductRepository productRepository;
+    private final ImageStorage imageStorage;
+    private final ImageReferences imageReferences;
+    private final ThreadPoolExecutor executor;
+
+    public ImageVariantService(ProductImageVariantRepository variantRepository,
+                               ProductRepository productRepository,
+                               ImageStorage imageStorage,
+                               ImageReferences imageReferences,
+                               @Value("${images.variants.threads:2}") int threads,
+                               @Value("${images.variants.queue-capacity:100}") int queueCapacity) {
+        this.variantRepository = variantRepository;
+        this.productRepository = productRepository;
+        this.imageStorage = imageStorage;
+        this.imageReferences = imageReferences;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread t = new Thread(task, "image-variants-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Encola la generación de variantes. Si hay una transacción activa se
+     * espera a que confirme, para no generar variantes de un producto que
+     * no llegó a guardarse. El original se lee del almacén en el hilo de
+     * trabajo: no hace falta retener los bytes mientras espera en la cola.
+     */
+    public void generateAsync(Long productId, String sha256) {
+        afterCommit(() -> submit(productId, sha256));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private byte[] readStored(String sha256) throws IOException {
+        Resource stored = imageStorage.get(sha256)
+                .orElseThrow(() -> new IOException("Imagen no encontrada en el almacén: " + sha256));
+        try (InputStream in = stored.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void submit(Long productId, String sha256) {
+        try {
+            executor.execute(() -> generate(productId, sha256));
+        } catch (RejectedExecutionException e) {
+            log.warn("Cola de variantes llena; el producto {} usará la imagen original", productId);
+        }
+    }
+
+    private void generate(Long productId, String sha256) {
+        try {
+            BufferedImage source = decode(sha256);
+            if (source == null) {
+                // Formato sin decodificador en ImageIO (p. ej. WebP): se sirve el original
+                log.debug("Sin decodificador para la imagen del producto {}", productId);
+                return;
+            }
+
+            for (Size size : Size.values()) {
+                BufferedImage scaled = scale(source, size.getMaxWidth());
+                byte[] encoded = encodeJpeg(scaled);
+                if (!productRepository.existsById(productId)) {
+                    return; // El producto se eliminó mientras se procesaba
+                }
+
+                ProductImageVariant variant = new ProductImageVariant();
+                variant.setProductId(productId);
+                variant.setVariant(size.key());
+                variant.setWidth(scaled.getWidth());
+                variant.setHeight(scaled.getHeight());
+                variant.setContentType(OUTPUT_TYPE);
+                variant.setSha256(imageReferences.storePinned(encoded));
+                try {
+                    variantRepository.save(variant);
+                } catch (DataIntegrityViolationException e) {
+                    // FK product_id (el producto se eliminó tras existsById) o variante ya generada
+                    discard(variant.getSha256());
+                    return;
+                } catch (RuntimeException e) {
+                    discard(variant.getSha256());
+                    throw e;
+                }
+                imageReferences.unpin(Collections.singletonList(variant.getSha256()));
+            }
+        } catch (Exception e) {
+            log.warn("No se pudieron generar las variantes del producto {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private void discard(String sha256) {
+        imageReferences.unpin(Collections.singletonList(sha256));
+        imageReferences.releaseAfterCommit(Collections.singletonList(sha256));
+    }
+
+    /**
+     * Decodifica el original submuestreado: con max-pixels a 40MP un
+     * BufferedImage completo ocupa unos 160MB por hilo. Se leen solo las filas
+     * y columnas necesarias para dejar al menos el doble del ancho de la
+     * variante mayor, y el escalado por mitades hace el resto.
+     * Devuelve null si ImageIO no tiene decodificador para el formato.
+     */
+    private BufferedImage decode(String sha256) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(readStored(sha256)))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int factor = Math.max(1, reader.getWidth(0) / (2 * MAX_VARIANT_WIDTH));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen a maxWidth (sin ampliar) en pasos de mitad para
+     * mantener la calidad, y la pasa a RGB (JPEG no admite transparencia).
+     */
+    private BufferedImage scale(BufferedImage source, int maxWidth) {
+        int targetWidth = Math.min(maxWidth, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = toRgb(source);
+        int width = current.getWidth();
+        int height = current.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
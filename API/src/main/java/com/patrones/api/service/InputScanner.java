@@ -0,0 +1,310 @@
+package com.patrones.api.service;
+
+import com.patrones.api.service.SecurityService.Threat;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Motor de una sola pasada para SecurityService: reconoce lo mismo que los 17
+ * patrones de SQL injection y XSS recorriendo el texto una vez, con un
+ * autómata Aho-Corasick (tabla de transiciones ASCII en minúsculas) para los
+ * literales y un seguimiento de tokens \w para las palabras clave.
+ * <p>
+ * Equivalencias con los patrones originales (solo importa si hay coincidencia):
+ * <ul>
+ *   <li>{@code \b(SELECT|...)\b}, {@code \b(SLEEP|...)\b}, {@code \b(XP_|SP_)\w+\b}:
+ *       un token \w completo igual a la palabra clave o con ese prefijo.</li>
+ *   <li>{@code \b(OR|AND)\s+\d+\s*=\s*\d+}: token or/and seguido de esa forma.</li>
+ *   <li>{@code <script(.*?)>}, {@code eval\((.*?)\)}, {@code expression\((.*?)\)},
+ *       {@code onload(.*?)=}, {@code onerror(.*?)=}: el literal y, más adelante,
+ *       el carácter de cierre. {@code <script>(.*?)</script>} queda cubierto
+ *       por {@code <script(.*?)>}.</li>
+ *   <li>{@code src[\r\n]*=[\r\n]*'(.*?)'}: un pequeño autómata tras "src".</li>
+ * </ul>
+ */
+final class InputScanner {
+
+    // Qué familias de patrones se comprueban
+    static final int SQL = 1;
+    static final int XSS = 2;
+    static final int ALL = SQL | XSS;
+
+    // Acciones asociadas a los literales del autómata
+    private static final int SQL_HIT = 1;
+    private static final int XSS_HIT = 1 << 1;
+    private static final int SCRIPT_OPEN = 1 << 2;   // espera '>'
+    private static final int PAREN_OPEN = 1 << 3;    // espera ')'
+    private static final int HANDLER_OPEN = 1 << 4;  // espera '='
+    private static final int SRC = 1 << 5;           // src[\r\n]*=[\r\n]*'...'
+
+    private static final String[] LITERALS = {
+            "--", "#", "/*", "*/", ";", "||", "&&", "'", "%27", "%22",
+            "</script>", "javascript:", "vbscript:",
+            "<script", "eval(", "expression(", "onload", "onerror", "src"
+    };
+    private static final int[] ACTIONS = {
+            SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT, SQL_HIT,
+            XSS_HIT, XSS_HIT, XSS_HIT,
+            SCRIPT_OPEN, PAREN_OPEN, PAREN_OPEN, HANDLER_OPEN, HANDLER_OPEN, SRC
+    };
+
+    private static final String[] SQL_KEYWORDS = {
+            "select", "insert", "update", "delete", "drop", "union", "exec", "alter", "create", "truncate",
+            "sleep", "waitfor", "delay"
+    };
+
+    // Tabla Aho-Corasick: next[estado * 128 + c] y acciones acumuladas por estado
+    private static final int[] NEXT;
+    private static final int[] OUTPUT;
+
+    static {
+        int maxStates = 1;
+        for (String literal : LITERALS) {
+            maxStates += literal.length();
+        }
+        int[] next = new int[maxStates * 128];
+        int[] output = new int[maxStates];
+        int[] fail = new int[maxStates];
+        Arrays.fill(next, -1);
+
+        int states = 1;
+        for (int i = 0; i < LITERALS.length; i++) {
+            int state = 0;
+            for (char c : LITERALS[i].toCharArray()) {
+                if (next[state * 128 + c] < 0) {
+                    next[state * 128 + c] = states++;
+                }
+                state = next[state * 128 + c];
+            }
+            output[state] |= ACTIONS[i];
+        }
+
+        // Enlaces de fallo en anchura; las transiciones ausentes apuntan a las del fallo
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < 128; c++) {
+            if (next[c] < 0) {
+                next[c] = 0;
+            } else {
+                fail[next[c]] = 0;
+                queue.add(next[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[fail[state]];
+            for (int c = 0; c < 128; c++) {
+                int target = next[state * 128 + c];
+                if (target < 0) {
+                    next[state * 128 + c] = next[fail[state] * 128 + c];
+                } else {
+                    fail[target] = next[fail[state] * 128 + c];
+                    queue.add(target);
+                }
+            }
+        }
+
+        NEXT = next;
+        OUTPUT = output;
+    }
+
+    private InputScanner() {}
+
+    /**
+     * Primera amenaza encontrada de las familias pedidas, o NONE.
+     */
+    static Threat classify(String input, int families) {
+        return scan(input, families, null);
+    }
+
+    /**
+     * Si el texto no coincide con ningún patrón ni contiene nada que Jsoup
+     * transforme, devuelve en la misma pasada el resultado de cleanInput
+     * (espacios normalizados, comillas dobles y '/' codificadas); si no, null.
+     */
+    static String encodeIfPlain(String trimmed, StringBuilder out) {
+        out.setLength(0);
+        return scan(trimmed, ALL, out) == Threat.NONE ? trimTrailingSpace(out) : null;
+    }
+
+    // -----------------------------
+    // Recorrido
+    // -----------------------------
+
+    /**
+     * Recorre el texto una vez. Si se pasa {@code out}, codifica a la vez y
+     * devuelve null en cuanto aparece algo que solo el pipeline completo
+     * reproduce exactamente.
+     */
+    private static Threat scan(String input, int families, StringBuilder out) {
+        boolean sql = (families & SQL) != 0;
+        boolean xss = (families & XSS) != 0;
+
+        int state = 0;
+        boolean scriptOpen = false;
+        boolean parenOpen = false;
+        boolean handlerOpen = false;
+        int srcState = 0; // 0 nada, 1 tras "src", 2 tras '=', 3 tras la primera comilla
+        int tokenStart = -1;
+
+        int length = input.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? input.charAt(i) : ' ';
+            boolean end = i == length;
+
+            // Tokens \w: las palabras clave se evalúan al cerrarse el token
+            if (isWord(c) && !end) {
+                if (tokenStart < 0) {
+                    tokenStart = i;
+                }
+            } else if (tokenStart >= 0) {
+                if (sql && sqlToken(input, tokenStart, i)) {
+                    return Threat.SQL_INJECTION;
+                }
+                tokenStart = -1;
+            }
+            if (end) {
+                break;
+            }
+
+            if (xss) {
+                if ((scriptOpen && c == '>') || (parenOpen && c == ')') || (handlerOpen && c == '=')) {
+                    return Threat.XSS;
+                }
+                switch (srcState) {
+                    case 1 -> srcState = c == '=' ? 2 : (c == '\r' || c == '\n') ? 1 : 0;
+                    case 2 -> srcState = c == '\'' ? 3 : (c == '\r' || c == '\n') ? 2 : 0;
+                    case 3 -> {
+                        if (c == '\'') {
+                            return Threat.XSS;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+
+            if (c < 128) {
+                state = NEXT[state * 128 + lower(c)];
+                int actions = OUTPUT[state];
+                if (actions != 0) {
+                    if (sql && (actions & SQL_HIT) != 0) {
+                        return Threat.SQL_INJECTION;
+                    }
+                    if (xss) {
+                        if ((actions & XSS_HIT) != 0) {
+                            return Threat.XSS;
+                        }
+                        scriptOpen |= (actions & SCRIPT_OPEN) != 0;
+                        parenOpen |= (actions & PAREN_OPEN) != 0;
+                        handlerOpen |= (actions & HANDLER_OPEN) != 0;
+                        if ((actions & SRC) != 0 && srcState != 3) {
+                            srcState = 1;
+                        }
+                    }
+                }
+            } else {
+                state = 0;
+            }
+
+            if (out != null && !encode(c, out)) {
+                return null;
+            }
+        }
+        return Threat.NONE;
+    }
+
+    private static boolean sqlToken(String input, int start, int end) {
+        int length = end - start;
+        for (String keyword : SQL_KEYWORDS) {
+            if (keyword.length() == length && input.regionMatches(true, start, keyword, 0, length)) {
+                return true;
+            }
+        }
+        if (length > 3 && (input.regionMatches(true, start, "xp_", 0, 3)
+                || input.regionMatches(true, start, "sp_", 0, 3))) {
+            return true;
+        }
+        if ((length == 2 && input.regionMatches(true, start, "or", 0, 2))
+                || (length == 3 && input.regionMatches(true, start, "and", 0, 3))) {
+            return tautology(input, end);
+        }
+        return false;
+    }
+
+    /**
+     * \s+\d+\s*=\s*\d a partir de la posición dada.
+     */
+    private static boolean tautology(String input, int pos) {
+        int length = input.length();
+        int i = pos;
+        while (i < length && isSpace(input.charAt(i))) {
+            i++;
+        }
+        if (i == pos || i == length || !isDigit(input.charAt(i))) {
+            return false;
+        }
+        while (i < length && isDigit(input.charAt(i))) {
+            i++;
+        }
+        while (i < length && isSpace(input.charAt(i))) {
+            i++;
+        }
+        if (i == length || input.charAt(i) != '=') {
+            return false;
+        }
+        i++;
+        while (i < length && isSpace(input.charAt(i))) {
+            i++;
+        }
+        return i < length && isDigit(input.charAt(i));
+    }
+
+    // -----------------------------
+    // Codificación (equivalente a Jsoup.clean + replace para texto sin marcado)
+    // -----------------------------
+    private static boolean encode(char c, StringBuilder out) {
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+            // Jsoup (pretty print) colapsa los espacios y recorta los extremos
+            if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                out.append(' ');
+            }
+        } else if (c == '"') {
+            out.append("&quot;");
+        } else if (c == '/') {
+            out.append("&#x2F;");
+        } else if (c == '<' || c == '>' || c == '&' || c < ' ' || c == '\u007F' || c == '\u00A0'
+                || Character.isSurrogate(c)) {
+            // Marcado, entidades o caracteres que Jsoup trata aparte
+            return false;
+        } else {
+            out.append(c);
+        }
+        return true;
+    }
+
+    private static String trimTrailingSpace(StringBuilder out) {
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') {
+            length--;
+        }
+        return out.substring(0, length);
+    }
+
+    private static boolean isWord(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // \s de java.util.regex sin UNICODE_CHARACTER_CLASS
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
@@ -6,8 +6,10 @@ import com.patrones.api.entity.Payment;
 import com.patrones.api.repository.PaymentRepository;
 import com.patrones.api.repository.ClientDataRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -97,9 +99,27 @@ public class PaymentService {
     }
 
     // --- Obtener todos los Payments ---
-    public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+    public List<PaymentRepository.PaymentView> getAllPayments() {
+        return paymentRepository.findAllViews();
     }
 
-    
+    // --- Recorrer todos los Payments por lotes (memoria constante) ---
+    public void forEachPaymentBatch(int batchSize, PaymentBatchConsumer consumer) throws IOException {
+        PageRequest limit = PageRequest.of(0, batchSize);
+        long lastId = 0L;
+        List<PaymentRepository.PaymentView> batch = paymentRepository.findViewsAfter(lastId, limit);
+        while (!batch.isEmpty()) {
+            consumer.accept(batch);
+            if (batch.size() < batchSize) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            batch = paymentRepository.findViewsAfter(lastId, limit);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PaymentBatchConsumer {
+        void accept(List<PaymentRepository.PaymentView> batch) throws IOException;
+    }
 }
@@ -0,0 +1,508 @@
+package com.patrones.api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.patrones.api.dto.ImportResultDTO;
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.entity.Product;
+import com.patrones.api.event.ProductCreatedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Importación masiva de productos desde un manifiesto (NDJSON o CSV) y un zip
+ * opcional con las imágenes.
+ * <p>
+ * El manifiesto se lee en lotes: las imágenes de cada lote se validan y
+ * escanean con ClamAV en paralelo en un pool acotado, y los productos válidos
+ * se insertan con un único batch JDBC por lote. El resultado de cada fila se
+ * entrega al terminar su lote, para poder devolverlo en streaming.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, price, image_name, image_type, image_size, " +
+            "image_sha256, image_status, comment_count, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageValidationService imageValidationService;
+    private final ImageReferences imageReferences;
+    private final ImageVariantService imageVariantService;
+    private final ImageQuarantine imageQuarantine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ImageValidationService imageValidationService,
+                                ImageReferences imageReferences,
+                                ImageVariantService imageVariantService,
+                                ImageQuarantine imageQuarantine,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                @Value("${products.import.threads:4}") int threads,
+                                @Value("${products.import.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.imageValidationService = imageValidationService;
+        this.imageReferences = imageReferences;
+        this.imageVariantService = imageVariantService;
+        this.imageQuarantine = imageQuarantine;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+
+        // Cola acotada y CallerRunsPolicy: si el pool va lento, el hilo que lee
+        // el manifiesto escanea él mismo y deja de leer filas nuevas
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                task -> {
+                    Thread t = new Thread(task, "product-import-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Recibe los resultados de cada lote en cuanto están listos.
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(List<ImportResultDTO> results) throws IOException;
+    }
+
+    public void importProducts(Path manifest, boolean csv, Path imagesZip, ResultSink sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8);
+             ZipFile zip = imagesZip != null ? new ZipFile(imagesZip.toFile()) : null) {
+
+            ManifestReader rows = csv ? new CsvManifestReader(reader) : new NdjsonManifestReader(reader, objectMapper);
+            List<Row> batch = new ArrayList<>(batchSize);
+            Row row;
+            while ((row = rows.next()) != null) {
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    sink.accept(importBatch(batch, zip));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(importBatch(batch, zip));
+            }
+        }
+    }
+
+    // -----------------------------
+    // Procesamiento de un lote
+    // -----------------------------
+    private List<ImportResultDTO> importBatch(List<Row> rows, ZipFile zip) {
+        List<ImportResultDTO> results = new ArrayList<>();
+        Map<Row, Future<StoredImage>> scans = new HashMap<>();
+
+        // 1. Validación de campos y escaneo de imágenes en paralelo
+        List<Row> valid = new ArrayList<>();
+        for (Row row : rows) {
+            String problem = row.validate();
+            if (problem == null && row.image != null && zip == null) {
+                problem = "El manifiesto referencia una imagen pero no se envió el zip";
+            }
+            if (problem != null) {
+                results.add(ImportResultDTO.error(row.line, row.name, problem));
+                continue;
+            }
+            valid.add(row);
+            if (row.image != null) {
+                scans.put(row, executor.submit(() -> storeImage(zip, row.image)));
+            }
+        }
+
+        // 2. Esperar los escaneos; las filas con imagen rechazada no se insertan
+        List<Row> insertable = new ArrayList<>();
+        List<String> orphaned = new ArrayList<>();
+        try {
+            for (Row row : valid) {
+                Future<StoredImage> scan = scans.get(row);
+                if (scan != null) {
+                    try {
+                        row.stored = scan.get();
+                    } catch (ExecutionException e) {
+                        results.add(ImportResultDTO.error(row.line, row.name, describe(e.getCause())));
+                        continue;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        results.add(ImportResultDTO.error(row.line, row.name, "Importación interrumpida"));
+                        continue;
+                    }
+                }
+                insertable.add(row);
+            }
+
+            // 3. Inserción del lote en una sola transacción
+            if (!insertable.isEmpty()) {
+                try {
+                    List<Long> ids = transactionTemplate.execute(status -> insert(insertable));
+                    for (int i = 0; i < insertable.size(); i++) {
+                        results.add(ImportResultDTO.created(insertable.get(i).line, insertable.get(i).name, ids.get(i)));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Falló la inserción de un lote de importación: {}", e.getMessage());
+                    insertable.stream().filter(r -> r.stored != null).forEach(r -> orphaned.add(r.stored.sha256));
+                    for (Row row : insertable) {
+                        results.add(ImportResultDTO.error(row.line, row.name, "Error al guardar el producto"));
+                    }
+                }
+            }
+        } finally {
+            // Las imágenes guardadas quedan fijadas hasta que sus filas se confirman o descartan
+            for (Future<StoredImage> scan : scans.values()) {
+                if (scan.state() == Future.State.SUCCESS) {
+                    imageReferences.unpin(Collections.singletonList(scan.resultNow().sha256));
+                }
+            }
+        }
+        imageReferences.releaseAfterCommit(orphaned);
+
+        results.sort(Comparator.comparingInt(ImportResultDTO::getLine));
+        return results;
+    }
+
+    /**
+     * Lee la imagen del zip, la valida/escanea y la guarda en el almacén.
+     */
+    private StoredImage storeImage(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null || entry.isDirectory()) {
+            throw new IllegalArgumentException("Imagen no encontrada en el zip: " + name);
+        }
+        if (entry.getSize() > ImageValidationService.MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("La imagen excede el tamaño máximo permitido de 5MB");
+        }
+
+        byte[] data;
+        try (InputStream in = zip.getInputStream(entry)) {
+            // El tamaño declarado en el zip puede mentir: nunca se leen más de 5MB + 1
+            data = in.readNBytes((int) ImageValidationService.MAX_FILE_SIZE + 1);
+        }
+        String contentType = contentTypeOf(name);
+        ImageStatus status = imageValidationService.validateImage(contentType, data);
+        return new StoredImage(imageReferences.storePinned(data), data.length, contentType, fileName(name), status);
+    }
+
+    private List<Long> insert(List<Row> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                for (Row row : rows) {
+                    ps.setString(1, row.name);
+                    ps.setString(2, row.description);
+                    ps.setDouble(3, row.price);
+                    if (row.stored != null) {
+                        ps.setString(4, row.stored.fileName);
+                        ps.setString(5, row.stored.contentType);
+                        ps.setLong(6, row.stored.size);
+                        ps.setString(7, row.stored.sha256);
+                        ps.setString(8, row.stored.status.name());
+                    } else {
+                        ps.setNull(4, Types.VARCHAR);
+                        ps.setNull(5, Types.VARCHAR);
+                        ps.setNull(6, Types.BIGINT);
+                        ps.setNull(7, Types.VARCHAR);
+                        ps.setNull(8, Types.VARCHAR);
+                    }
+                    ps.setTimestamp(9, Timestamp.valueOf(now));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Long> generated = new ArrayList<>(rows.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getLong(1));
+                    }
+                }
+                return generated;
+            }
+        });
+
+        // Índices, caché y variantes se actualizan tras el commit; las imágenes
+        // en cuarentena se encolan en esta misma transacción
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            Product product = row.toProduct(ids.get(i), now);
+            eventPublisher.publishEvent(new ProductCreatedEvent(product));
+            if (row.stored != null && row.stored.status == ImageStatus.PENDING_SCAN) {
+                imageQuarantine.enqueue(row.stored.sha256);
+            } else if (row.stored != null) {
+                imageVariantService.generateAsync(product.getId(), row.stored.sha256);
+            }
+        }
+        return ids;
+    }
+
+    private static String describe(Throwable error) {
+        if (error instanceof ResponseStatusException status) {
+            return status.getReason();
+        }
+        return error.getMessage() != null ? error.getMessage() : "Error al procesar la imagen";
+    }
+
+    private static String contentTypeOf(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "image/jpeg";
+        }
+        if (lower.endsWith(".png")) {
+            return "image/png";
+        }
+        if (lower.endsWith(".webp")) {
+            return "image/webp";
+        }
+        return null; // ImageValidationService lo rechaza como tipo no permitido
+    }
+
+    private static String fileName(String entryName) {
+        return entryName.substring(entryName.lastIndexOf('/') + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // -----------------------------
+    // Filas del manifiesto
+    // -----------------------------
+    private static final class StoredImage {
+        final String sha256;
+        final long size;
+        final String contentType;
+        final String fileName;
+        final ImageStatus status;
+
+        StoredImage(String sha256, long size, String contentType, String fileName, ImageStatus status) {
+            this.sha256 = sha256;
+            this.size = size;
+            this.contentType = contentType;
+            this.fileName = fileName;
+            this.status = status;
+        }
+    }
+
+    private static final class Row {
+        final int line;
+        final String name;
+        final String description;
+        final String priceText;
+        final String image;
+        double price;
+        StoredImage stored;
+
+        Row(int line, String name, String description, String priceText, String image) {
+            this.line = line;
+            this.name = trimToNull(name);
+            this.description = trimToNull(description);
+            this.priceText = trimToNull(priceText);
+            this.image = trimToNull(image);
+        }
+
+        /**
+         * Mismas reglas que POST /api/products. Devuelve el error o null.
+         */
+        String validate() {
+            if (name == null || description == null || priceText == null) {
+                return "Campos inválidos: name, description o price";
+            }
+            try {
+                price = Double.parseDouble(priceText);
+            } catch (NumberFormatException e) {
+                return "Precio inválido: " + priceText;
+            }
+            if (!(price > 0) || Double.isInfinite(price)) {
+                return "El precio debe ser mayor que cero";
+            }
+            return null;
+        }
+
+        Product toProduct(Long id, LocalDateTime createdAt) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName(name);
+            product.setDescription(description);
+            product.setPrice(price);
+            product.setCreatedAt(createdAt);
+            if (stored != null) {
+                product.setImageName(stored.fileName);
+                product.setImageType(stored.contentType);
+                product.setImageSize(stored.size);
+                product.setImageSha256(stored.sha256);
+                product.setImageStatus(stored.status);
+            }
+            return product;
+        }
+
+        private static String trimToNull(String value) {
+            if (value == null) {
+                return null;
+            }
+            String trimmed = value.trim();
+            return trimmed.isEmpty() ? null : trimmed;
+        }
+    }
+
+    private interface ManifestReader {
+        /** Siguiente fila, o null al terminar. */
+        Row next() throws IOException;
+    }
+
+    /**
+     * Un objeto JSON por línea: {"name", "description", "price", "image"}.
+     */
+    private static final class NdjsonManifestReader implements ManifestReader {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private int lineNumber;
+
+        NdjsonManifestReader(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    return new Row(lineNumber, text(node, "name"), text(node, "description"),
+                            text(node, "price"), text(node, "image"));
+                } catch (IOException e) {
+                    // Una línea mal formada se informa como error de esa fila
+                    return new Row(lineNumber, null, null, null, null);
+                }
+            }
+            return null;
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    /**
+     * CSV con cabecera (name,description,price,image; la columna image es
+     * opcional). Admite campos entre comillas con comas y comillas dobles
+     * escapadas (""), pero no saltos de línea dentro de un campo.
+     */
+    private static final class CsvManifestReader implements ManifestReader {
+        private final BufferedReader reader;
+        private Map<String, Integer> columns;
+        private int lineNumber;
+
+        CsvManifestReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parse(line);
+                if (columns == null) {
+                    columns = new HashMap<>();
+                    for (int i = 0; i < fields.size(); i++) {
+                        columns.put(fields.get(i).trim().toLowerCase(Locale.ROOT).replace("\uFEFF", ""), i);
+                    }
+                    continue;
+                }
+                return new Row(lineNumber, field(fields, "name"), field(fields, "description"),
+                        field(fields, "price"), field(fields, "image"));
+            }
+            return null;
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }
+
+        static List<String> parse(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.patrones.api.service;
+
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Índice de precios en memoria: arreglos primitivos paralelos (double[] de
+ * precios y long[] de ids) ordenados por (precio, id). Los rangos se
+ * resuelven con búsqueda binaria. Las escrituras crean un nuevo snapshot
+ * (copy-on-write), así las lecturas no necesitan bloqueo.
+ */
+@Service
+public class ProductPriceIndex {
+
+    private final ProductRepository productRepository;
+    private volatile Snapshot snapshot = new Snapshot(new double[0], new long[0]);
+
+    public ProductPriceIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    private static final class Snapshot {
+        final double[] prices;
+        final long[] ids;
+
+        Snapshot(double[] prices, long[] ids) {
+            this.prices = prices;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Ids de una página del rango y total de productos en el rango.
+     */
+    public static class Range {
+        private final long[] ids;
+        private final int total;
+
+        Range(long[] ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public long[] getIds() { return ids; }
+        public int getTotal() { return total; }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<ProductRepository.PriceView> rows = productRepository.findAllPrices();
+        double[] prices = new double[rows.size()];
+        long[] ids = new long[rows.size()];
+
+        Integer[] order = new Integer[rows.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(
+                rows.get(a).getPrice(), rows.get(a).getId(),
+                rows.get(b).getPrice(), rows.get(b).getId()));
+        for (int i = 0; i < order.length; i++) {
+            prices[i] = rows.get(order[i]).getPrice();
+            ids[i] = rows.get(order[i]).getId();
+        }
+        snapshot = new Snapshot(prices, ids);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductCreated(ProductCreatedEvent event) {
+        Snapshot current = snapshot;
+        double price = event.getProduct().getPrice();
+        long id = event.getProduct().getId();
+        if (indexOf(current, price, id) >= 0) {
+            return;
+        }
+
+        int at = insertionPoint(current, price, id);
+        int n = current.ids.length;
+        double[] prices = new double[n + 1];
+        long[] ids = new long[n + 1];
+        System.arraycopy(current.prices, 0, prices, 0, at);
+        System.arraycopy(current.ids, 0, ids, 0, at);
+        prices[at] = price;
+        ids[at] = id;
+        System.arraycopy(current.prices, at, prices, at + 1, n - at);
+        System.arraycopy(current.ids, at, ids, at + 1, n - at);
+        snapshot = new Snapshot(prices, ids);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductDeleted(ProductDeletedEvent event) {
+        Snapshot current = snapshot;
+        long id = event.getProductId();
+        // El evento de borrado solo trae el id: búsqueda lineal sobre long[]
+        int at = -1;
+        for (int i = 0; i < current.ids.length; i++) {
+            if (current.ids[i] == id) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0) {
+            return;
+        }
+
+        int n = current.ids.length;
+        double[] prices = new double[n - 1];
+        long[] ids = new long[n - 1];
+        System.arraycopy(current.prices, 0, prices, 0, at);
+        System.arraycopy(current.ids, 0, ids, 0, at);
+        System.arraycopy(current.prices, at + 1, prices, at, n - at - 1);
+        System.arraycopy(current.ids, at + 1, ids, at, n - at - 1);
+        snapshot = new Snapshot(prices, ids);
+    }
+
+    /**
+     * Productos con precio entre min y max (inclusive), ordenados por precio.
+     * Solo se copian los ids de la página pedida.
+     */
+    public Range range(double min, double max, boolean descending, int offset, int limit) {
+        Snapshot current = snapshot;
+        int from = lowerBound(current.prices, min);
+        int to = upperBound(current.prices, max);
+        int total = Math.max(0, to - from);
+        if (offset >= total || limit <= 0) {
+            return new Range(new long[0], total);
+        }
+
+        int count = Math.min(limit, total - offset);
+        long[] page = new long[count];
+        for (int i = 0; i < count; i++) {
+            page[i] = descending ? current.ids[to - 1 - offset - i] : current.ids[from + offset + i];
+        }
+        return new Range(page, total);
+    }
+
+    // Primer índice con precio >= value
+    private static int lowerBound(double[] prices, double value) {
+        int lo = 0, hi = prices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // Primer índice con precio > value
+    private static int upperBound(double[] prices, double value) {
+        int lo = 0, hi = prices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prices[mid] <= value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int insertionPoint(Snapshot s, double price, long id) {
+        int lo = 0, hi = s.ids.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(s.prices[mid], s.ids[mid], price, id) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int indexOf(Snapshot s, double price, long id) {
+        int at = insertionPoint(s, price, id);
+        return at < s.ids.length && s.ids[at] == id ? at : -1;
+    }
+
+    private static int compare(double priceA, long idA, double priceB, long idB) {
+        int byPrice = Double.compare(priceA, priceB);
+        return byPrice != 0 ? byPrice : Long.compare(idA, idB);
+    }
+}
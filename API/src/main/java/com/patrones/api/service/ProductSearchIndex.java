@@ -0,0 +1,213 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.Product;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre nombre y descripción de los productos.
+ * Ranking BM25 (el nombre pesa más que la descripción) con coincidencia por
+ * prefijo. Se construye al arrancar y se actualiza al crear o eliminar productos.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Parámetros BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Un término del nombre cuenta como tres de la descripción
+    private static final int NAME_WEIGHT = 3;
+
+    // Las coincidencias por prefijo puntúan menos que las exactas
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // término → (productId → frecuencia ponderada)
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // productId → términos del documento (para poder eliminarlo) y su longitud
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    private long totalLength;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Resultado de búsqueda: id de producto y puntuación.
+     */
+    public static class Hit {
+        private final Long productId;
+        private final double score;
+
+        public Hit(Long productId, double score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        public Long getProductId() { return productId; }
+        public double getScore() { return score; }
+    }
+
+    /**
+     * Se lee la BD con el write lock ya tomado: un alta o baja que confirme
+     * durante la lectura espera al lock y se aplica sobre el índice nuevo, en
+     * vez de perderse (o resucitar) al sustituirlo. Las búsquedas esperan
+     * mientras tanto, igual que en ProductPriceIndex.rebuild.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int size;
+        lock.writeLock().lock();
+        try {
+            List<ProductRepository.TextView> products = productRepository.findAllTextViews();
+            postings.clear();
+            documents.clear();
+            lengths.clear();
+            totalLength = 0;
+            products.forEach(p -> addInternal(p.getId(), p.getName(), p.getDescription()));
+            size = products.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda construido con {} productos", size);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCreated(ProductCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Product product = event.getProduct();
+            removeInternal(product.getId());
+            addInternal(product.getId(), product.getName(), product.getDescription());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(event.getProductId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos cuyo nombre o descripción contenga los términos de la
+     * consulta (o palabras que empiecen por ellos), ordenados por relevancia.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = TextNormalizer.tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return Collections.emptyList();
+            }
+            double avgLength = (double) totalLength / docCount;
+            Map<Long, Double> scores = new HashMap<>();
+
+            for (String term : terms) {
+                // Para cada documento se toma la mejor coincidencia del término
+                Map<Long, Double> termScores = new HashMap<>();
+                NavigableMap<String, Map<Long, Integer>> matches =
+                        postings.subMap(term, true, term + Character.MAX_VALUE, false);
+                int expansions = 0;
+                for (Map.Entry<String, Map<Long, Integer>> entry : matches.entrySet()) {
+                    if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_FACTOR;
+                    Map<Long, Integer> docs = entry.getValue();
+                    double idf = Math.log(1 + (docCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                    for (Map.Entry<Long, Integer> doc : docs.entrySet()) {
+                        int tf = doc.getValue();
+                        double norm = K1 * (1 - B + B * lengths.get(doc.getKey()) / avgLength);
+                        double score = factor * idf * (tf * (K1 + 1)) / (tf + norm);
+                        termScores.merge(doc.getKey(), score, Math::max);
+                    }
+                }
+                termScores.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1,
+                    (a, b) -> Double.compare(a.getScore(), b.getScore()));
+            scores.forEach((id, score) -> {
+                top.offer(new Hit(id, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+
+            List<Hit> result = new ArrayList<>(top);
+            result.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -----------------------------
+    // Mantenimiento (con el write lock tomado)
+    // -----------------------------
+    private void addInternal(Long productId, String name, String description) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        TextNormalizer.tokenize(name).forEach(t -> termFrequencies.merge(t, NAME_WEIGHT, Integer::sum));
+        TextNormalizer.tokenize(description).forEach(t -> termFrequencies.merge(t, 1, Integer::sum));
+
+        int length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+        documents.put(productId, termFrequencies);
+        lengths.put(productId, length);
+        totalLength += length;
+
+        termFrequencies.forEach((term, tf) ->
+                postings.computeIfAbsent(term, k -> new HashMap<>()).put(productId, tf));
+    }
+
+    private void removeInternal(Long productId) {
+        Map<String, Integer> termFrequencies = documents.remove(productId);
+        if (termFrequencies == null) {
+            return;
+        }
+        totalLength -= lengths.remove(productId);
+        for (String term : termFrequencies.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
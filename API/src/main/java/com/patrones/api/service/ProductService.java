@@ -1,24 +1,56 @@
 package com.patrones.api.service;
 
 import com.patrones.api.dto.ProductDTO;
+import com.patrones.api.entity.Comment;
+import com.patrones.api.entity.ImageStatus;
 import com.patrones.api.entity.Product;
+import com.patrones.api.event.CommentsChangedEvent;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.CommentRepository;
+import com.patrones.api.repository.ProductImageVariantRepository;
 import com.patrones.api.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ImageReferences imageReferences;
+    private final ProductImageVariantRepository productImageVariantRepository;
+    private final CommentRepository commentRepository;
     private final ImageValidationService imageValidationService;
+    private final ImageVariantService imageVariantService;
+    private final ImageQuarantine imageQuarantine;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, ImageValidationService imageValidationService) {
+    public ProductService(ProductRepository productRepository,
+                          ImageReferences imageReferences,
+                          ProductImageVariantRepository productImageVariantRepository,
+                          CommentRepository commentRepository,
+                          ImageValidationService imageValidationService,
+                          ImageVariantService imageVariantService,
+                          ImageQuarantine imageQuarantine,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.imageReferences = imageReferences;
+        this.productImageVariantRepository = productImageVariantRepository;
+        this.commentRepository = commentRepository;
         this.imageValidationService = imageValidationService;
+        this.imageVariantService = imageVariantService;
+        this.imageQuarantine = imageQuarantine;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -42,10 +74,11 @@ public class ProductService {
         product.setPrice(price);
 
         // 🧠 Validación y escaneo de imagen (delegado)
+        byte[] imageData = null;
         if (imageFile != null && !imageFile.isEmpty()) {
-            imageValidationService.validateImage(imageFile); // ✅ centralizado
+            product.setImageStatus(imageValidationService.validateImage(imageFile)); // ✅ centralizado
             try {
-                product.setImageData(imageFile.getBytes());
+                imageData = imageFile.getBytes();
                 product.setImageName(imageFile.getOriginalFilename());
                 product.setImageType(imageFile.getContentType());
             } catch (IOException e) {
@@ -58,11 +91,81 @@ public class ProductService {
         }
 
         // 💾 Guardar en base de datos
-        Product saved = productRepository.save(product);
+        Product saved = saveWithImage(product, imageData);
 
         return toDTO(saved);
     }
 
+    /**
+     * Guarda el producto y, si existe, su imagen en el almacén de imágenes.
+     * El producto solo conserva los metadatos (tamaño y hash del contenido).
+     * Las variantes redimensionadas se generan en segundo plano tras el commit,
+     * salvo si la imagen quedó en cuarentena: entonces se encola para reescaneo.
+     */
+    @Transactional
+    public Product saveWithImage(Product product, byte[] imageData) {
+        product.setImageSize(imageData != null ? (long) imageData.length : null);
+        product.setImageSha256(imageData != null ? imageReferences.storeForTransaction(imageData) : null);
+        Product saved = productRepository.save(product);
+        if (imageData != null && saved.getImageStatus() == ImageStatus.PENDING_SCAN) {
+            imageQuarantine.enqueue(saved.getImageSha256());
+        } else if (imageData != null) {
+            imageVariantService.generateAsync(saved.getId(), saved.getImageSha256());
+        }
+        eventPublisher.publishEvent(new ProductCreatedEvent(saved));
+        return saved;
+    }
+
+    /**
+     * Guarda un comentario e incrementa el contador del producto en la misma transacción.
+     */
+    @Transactional
+    public Comment addComment(Product product, String content, String author) {
+        Comment comment = new Comment(content, product, author);
+        Comment saved = commentRepository.save(comment);
+        productRepository.adjustCommentCount(product.getId(), 1);
+        eventPublisher.publishEvent(new CommentsChangedEvent(product.getId()));
+        return saved;
+    }
+
+    /**
+     * Elimina un comentario y decrementa el contador del producto en la misma transacción.
+     */
+    @Transactional
+    public void deleteComment(Comment comment) {
+        Long productId = comment.getProduct().getId();
+        commentRepository.delete(comment);
+        productRepository.adjustCommentCount(productId, -1);
+        eventPublisher.publishEvent(new CommentsChangedEvent(productId));
+    }
+
+    /**
+     * Elimina varios productos con sus comentarios y variantes en una sola
+     * transacción y con sentencias DELETE masivas (sin cargar entidades).
+     * Las imágenes que queden sin referencias se liberan tras el commit.
+     *
+     * @return ids que existían y se eliminaron
+     */
+    @Transactional
+    public List<Long> deleteProducts(Collection<Long> ids) {
+        List<ProductRepository.ImageHashView> existing = productRepository.lockImageHashesByIdIn(ids);
+        if (existing.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> deleted = existing.stream().map(ProductRepository.ImageHashView::getId).collect(Collectors.toList());
+        List<String> imageHashes = new ArrayList<>(productImageVariantRepository.findSha256ByProductIdIn(deleted));
+        existing.forEach(p -> imageHashes.add(p.getImageSha256()));
+
+        commentRepository.deleteByProductIdIn(deleted);
+        productImageVariantRepository.deleteByProductIdIn(deleted);
+        productRepository.deleteByIdIn(deleted);
+
+        imageReferences.releaseAfterCommit(imageHashes);
+        deleted.forEach(id -> eventPublisher.publishEvent(new ProductDeletedEvent(id)));
+        return deleted;
+    }
+
     /**
      * Convierte una entidad Product a DTO.
      */
@@ -73,8 +176,10 @@ public class ProductService {
         dto.setDescription(product.getDescription());
         dto.setPrice(product.getPrice());
         dto.setCreatedAt(product.getCreatedAt());
-        dto.setHasImage(product.getImageData() != null);
+        dto.setHasImage(product.getImageSize() != null && product.getImageStatus() != ImageStatus.PENDING_SCAN);
         dto.setImageType(product.getImageType());
+        dto.setImageSize(product.getImageSize());
+        dto.setCommentCount(product.getCommentCount() != null ? product.getCommentCount() : 0);
         return dto;
     }
 }
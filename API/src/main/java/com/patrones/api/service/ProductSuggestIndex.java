@@ -0,0 +1,324 @@
+package com.patrones.api.service;
+
+import com.patrones.api.dto.ProductSuggestionDTO;
+import com.patrones.api.entity.Product;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocompletado de nombres de producto con un trie de prefijos compacto
+ * (hijos en arreglos ordenados de char). Se indexa el nombre normalizado a
+ * partir de cada palabra, así "boy" encuentra "Arepa Boyacense".
+ * Cada nodo guarda los MAX_SUGGESTIONS productos más recientes de su
+ * subárbol, por lo que una consulta es un recorrido O(longitud del prefijo)
+ * sin tocar JPA.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node();
+    // productId → entrada indexada (para poder eliminarla)
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    public ProductSuggestIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    private static final class Entry {
+        final Long productId;
+        final String name;
+        final String key;
+        final long createdAt;
+
+        Entry(Long productId, String name, String key, long createdAt) {
+            this.productId = productId;
+            this.name = name;
+            this.key = key;
+            this.createdAt = createdAt;
+        }
+
+        // Más reciente primero; a igual fecha, id mayor primero
+        boolean ranksBefore(Entry other) {
+            return createdAt != other.createdAt ? createdAt > other.createdAt : productId > other.productId;
+        }
+    }
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        Entry[] top = new Entry[0];
+        // Entradas cuyo sufijo indexado termina en este nodo
+        List<Entry> terminals;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node node = new Node();
+            keys = insert(keys, at, c);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = node;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+            return node;
+        }
+
+        void offer(Entry entry) {
+            for (Entry e : top) {
+                if (e.productId.equals(entry.productId)) {
+                    return;
+                }
+            }
+            int at = 0;
+            while (at < top.length && top[at].ranksBefore(entry)) {
+                at++;
+            }
+            if (at >= MAX_SUGGESTIONS) {
+                return;
+            }
+            int size = Math.min(top.length + 1, MAX_SUGGESTIONS);
+            Entry[] grown = new Entry[size];
+            System.arraycopy(top, 0, grown, 0, at);
+            grown[at] = entry;
+            System.arraycopy(top, at, grown, at + 1, size - at - 1);
+            top = grown;
+        }
+
+        boolean contains(Long productId) {
+            for (Entry e : top) {
+                if (e.productId.equals(productId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static char[] insert(char[] array, int at, char c) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, at);
+            grown[at] = c;
+            System.arraycopy(array, at, grown, at + 1, array.length - at);
+            return grown;
+        }
+    }
+
+    /**
+     * Igual que ProductSearchIndex.rebuild: la lectura se hace con el write
+     * lock tomado para que ningún evento quede entre la lectura y el cambio.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            List<ProductRepository.TextView> products = productRepository.findAllTextViews();
+            root = new Node();
+            entries.clear();
+            products.forEach(p -> addInternal(p.getId(), p.getName(), p.getCreatedAt()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCreated(ProductCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Product product = event.getProduct();
+            removeInternal(product.getId());
+            addInternal(product.getId(), product.getName(), product.getCreatedAt());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(event.getProductId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sugerencias para el prefijo dado, las más recientes primero.
+     */
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        // Conservar el espacio final: "arepa " solo sugiere "arepa ..." con otra palabra
+        if (!key.isEmpty() && prefix.endsWith(" ")) {
+            key = key + " ";
+        }
+        List<ProductSuggestionDTO> result = new ArrayList<>();
+        if (key.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return result;
+            }
+            for (Entry e : node.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(new ProductSuggestionDTO(e.productId, e.name));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -----------------------------
+    // Mantenimiento (con el write lock tomado)
+    // -----------------------------
+    private void addInternal(Long productId, String name, LocalDateTime created) {
+        String key = String.join(" ", TextNormalizer.tokenize(name));
+        if (key.isEmpty()) {
+            return;
+        }
+        long createdAt = created != null
+                ? created.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        Entry entry = new Entry(productId, name, key, createdAt);
+        entries.put(productId, entry);
+
+        for (int start : wordStarts(key)) {
+            Node node = root;
+            for (int i = start; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                node.offer(entry);
+            }
+            if (node.terminals == null) {
+                node.terminals = new ArrayList<>(1);
+            }
+            node.terminals.add(entry);
+        }
+    }
+
+    private void removeInternal(Long productId) {
+        Entry entry = entries.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        for (int start : wordStarts(entry.key)) {
+            removePath(root, entry, start);
+        }
+    }
+
+    /**
+     * Quita la entrada del sufijo key[start..] y rehace el top de los nodos
+     * del camino que la contenían. Devuelve true si el nodo quedó vacío.
+     */
+    private boolean removePath(Node node, Entry entry, int index) {
+        if (index == entry.key.length()) {
+            if (node.terminals != null) {
+                node.terminals.removeIf(e -> e.productId.equals(entry.productId));
+                if (node.terminals.isEmpty()) {
+                    node.terminals = null;
+                }
+            }
+        } else {
+            char c = entry.key.charAt(index);
+            Node child = node.child(c);
+            if (child != null && removePath(child, entry, index + 1)) {
+                int i = Arrays.binarySearch(node.keys, c);
+                node.keys = removeAt(node.keys, i);
+                Node[] shrunk = new Node[node.children.length - 1];
+                System.arraycopy(node.children, 0, shrunk, 0, i);
+                System.arraycopy(node.children, i + 1, shrunk, i, node.children.length - i - 1);
+                node.children = shrunk;
+            }
+        }
+        if (node != root && node.contains(entry.productId)) {
+            if (node.top.length < MAX_SUGGESTIONS) {
+                // El subárbol no llenaba el top: no hay otra entrada que suba
+                node.top = without(node.top, entry.productId);
+            } else {
+                refill(node);
+            }
+        }
+        return node != root && node.children.length == 0 && node.terminals == null;
+    }
+
+    /**
+     * El top de un nodo son los mejores entre sus terminales y los tops de sus
+     * hijos (cada uno ya es el top de su subárbol). Se llama de abajo arriba,
+     * así que los hijos del camino ya están actualizados: coste
+     * O(hijos × MAX_SUGGESTIONS) en lugar de recorrer todo el subárbol.
+     */
+    private static void refill(Node node) {
+        node.top = new Entry[0];
+        if (node.terminals != null) {
+            node.terminals.forEach(node::offer);
+        }
+        for (Node child : node.children) {
+            for (Entry e : child.top) {
+                node.offer(e);
+            }
+        }
+    }
+
+    private static Entry[] without(Entry[] top, Long productId) {
+        Entry[] shrunk = new Entry[top.length - 1];
+        int at = 0;
+        for (Entry e : top) {
+            if (!e.productId.equals(productId)) {
+                shrunk[at++] = e;
+            }
+        }
+        return shrunk;
+    }
+
+    private static List<Integer> wordStarts(String key) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 1; i < key.length(); i++) {
+            if (key.charAt(i - 1) == ' ') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static char[] removeAt(char[] array, int at) {
+        char[] shrunk = new char[array.length - 1];
+        System.arraycopy(array, 0, shrunk, 0, at);
+        System.arraycopy(array, at + 1, shrunk, at, array.length - at - 1);
+        return shrunk;
+    }
+}
@@ -0,0 +1,123 @@
+package com.patrones.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Veredictos limpios de ClamAV por SHA-256 del contenido y versión de firmas.
+ * <p>
+ * La misma imagen subida de nuevo (foto de producto reutilizada, foto de
+ * perfil reenviada) no vuelve a escanearse mientras clamd tenga cargada la
+ * misma base de firmas. La versión se consulta con zVERSION como mucho una vez
+ * por {@code clamav.verdicts.version-check}; al cambiar se descartan todos los
+ * veredictos, porque firmas nuevas pueden detectar lo que antes pasaba.
+ * Métricas en /actuator/metrics con el nombre clamav.verdicts.
+ */
+@Service
+public class ScanVerdictCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanVerdictCache.class);
+
+    private final ClamAvClient clamAvClient;
+    private final Cache<String, Boolean> clean;
+    private final long versionCheckNanos;
+    private final long versionRetryNanos;
+    private final ReentrantLock versionLock = new ReentrantLock();
+
+    // null mientras clamd no responde; lastLoaded es la última versión obtenida
+    private volatile String version;
+    private volatile long nextCheckAt;
+    private String lastLoaded;
+
+    public ScanVerdictCache(ClamAvClient clamAvClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${clamav.verdicts.max-entries:100000}") long maxEntries,
+                            @Value("${clamav.verdicts.version-check:1m}") Duration versionCheck,
+                            @Value("${clamav.verdicts.version-retry:10s}") Duration versionRetry) {
+        this.clamAvClient = clamAvClient;
+        this.versionCheckNanos = versionCheck.toNanos();
+        this.versionRetryNanos = versionRetry.toNanos();
+        this.nextCheckAt = System.nanoTime();
+        this.clean = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, clean, "clamav.verdicts");
+    }
+
+    /**
+     * Clave del veredicto para este contenido con las firmas actuales,
+     * o null si no se pudo obtener la versión (entonces no se usa la caché).
+     */
+    public String key(String sha256) {
+        String current = currentVersion();
+        return current == null ? null : current + "|" + sha256;
+    }
+
+    public boolean isClean(String key) {
+        return key != null && clean.getIfPresent(key) != null;
+    }
+
+    public void markClean(String key) {
+        // Si las firmas cambiaron durante el escaneo la clave ya no coincide y
+        // la entrada se descarta en la próxima comprobación de versión
+        if (key != null) {
+            clean.put(key, Boolean.TRUE);
+        }
+    }
+
+    private String currentVersion() {
+        if (System.nanoTime() - nextCheckAt < 0) {
+            return version;
+        }
+        // Solo un hilo consulta a clamd; los demás no esperan (serían hilos
+        // virtuales bloqueados en E/S) y escanean sin caché mientras tanto
+        if (!versionLock.tryLock()) {
+            return null;
+        }
+        try {
+            if (System.nanoTime() - nextCheckAt < 0) {
+                return version;
+            }
+            try {
+                String latest = clamAvClient.signatureVersion();
+                if (lastLoaded != null && !lastLoaded.equals(latest)) {
+                    log.info("Firmas de ClamAV actualizadas ({} → {}), se descartan los veredictos", lastLoaded, latest);
+                    clean.invalidateAll();
+                }
+                lastLoaded = latest;
+                version = latest;
+                nextCheckAt = System.nanoTime() + versionCheckNanos;
+            } catch (ClamAvClient.UnavailableException e) {
+                // Circuito abierto: ya se registró el fallo original
+                unavailable();
+            } catch (IOException e) {
+                log.warn("No se pudo obtener la versión de firmas de ClamAV: {}", e.getMessage());
+                unavailable();
+            }
+            return version;
+        } finally {
+            versionLock.unlock();
+        }
+    }
+
+    /**
+     * Sin versión no se usa la caché; no se vuelve a preguntar hasta pasado
+     * {@code clamav.verdicts.version-retry}, para no añadir una llamada a
+     * clamd por cada escaneo mientras no responde.
+     */
+    private void unavailable() {
+        version = null;
+        nextCheckAt = System.nanoTime() + versionRetryNanos;
+    }
+}
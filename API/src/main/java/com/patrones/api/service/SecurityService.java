@@ -1,3 +1,5 @@
+package com.patrones.api.service;
+
 import org.springframework.stereotype.Service;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
@@ -6,6 +8,12 @@ import java.util.*;
 
 @Service
 public class SecurityService {
+
+    public enum Threat { NONE, SQL_INJECTION, XSS }
+
+    // Builder reutilizado por hilo para la pasada única de cleanInput
+    private static final int MAX_RETAINED_BUILDER = 8 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
     
     // SQL Injection patterns
     private static final Pattern[] SQL_INJECTION_PATTERNS = {
@@ -33,18 +41,38 @@ public class SecurityService {
     };
 
     /**
-     * Clean input from SQL Injection and XSS attacks
+     * Clean input from SQL Injection and XSS attacks.
+     * Plain text (no pattern hits, no markup) is cleaned in a single pass by
+     * InputScanner; anything else goes through the full regex + Jsoup
+     * pipeline, so the output is identical in both cases.
      */
     public String cleanInput(String input) {
         if (input == null) return null;
         
         String cleaned = input.trim();
+        StringBuilder builder = BUILDER.get();
+        String plain = InputScanner.encodeIfPlain(cleaned, builder);
+        if (builder.capacity() > MAX_RETAINED_BUILDER) {
+            BUILDER.remove();
+        }
+        if (plain != null) {
+            return plain;
+        }
+
         cleaned = preventSqlInjection(cleaned);
         cleaned = preventXss(cleaned);
         
         return cleaned;
     }
 
+    /**
+     * First SQL injection or XSS hit, short-circuiting on the first match
+     */
+    public Threat classify(String input) {
+        if (input == null) return Threat.NONE;
+        return InputScanner.classify(input, InputScanner.ALL);
+    }
+
     /**
      * Prevent SQL Injection attacks
      */
@@ -119,13 +147,7 @@ public class SecurityService {
      */
     public boolean hasSqlInjection(String input) {
         if (input == null) return false;
-        
-        for (Pattern pattern : SQL_INJECTION_PATTERNS) {
-            if (pattern.matcher(input).find()) {
-                return true;
-            }
-        }
-        return false;
+        return InputScanner.classify(input, InputScanner.SQL) != Threat.NONE;
     }
 
     /**
@@ -133,13 +155,7 @@ public class SecurityService {
      */
     public boolean hasXss(String input) {
         if (input == null) return false;
-        
-        for (Pattern pattern : XSS_PATTERNS) {
-            if (pattern.matcher(input).find()) {
-                return true;
-            }
-        }
-        return false;
+        return InputScanner.classify(input, InputScanner.XSS) != Threat.NONE;
     }
 
     /**
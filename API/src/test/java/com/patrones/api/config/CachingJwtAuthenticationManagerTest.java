@@ -0,0 +1,102 @@
+package com.patrones.api.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingJwtAuthenticationManagerTest {
+
+	private final AtomicInteger decodes = new AtomicInteger();
+
+	@Test
+	void decodesRepeatedTokenOnce() {
+		CachingJwtAuthenticationManager manager = manager(token -> jwt(token, Instant.now().plusSeconds(300)));
+
+		BearerTokenAuthenticationToken first = bearer("a.b.c", "10.0.0.1");
+		BearerTokenAuthenticationToken second = bearer("a.b.c", "10.0.0.2");
+		Authentication firstResult = manager.authenticate(first);
+		Authentication secondResult = manager.authenticate(second);
+
+		assertThat(decodes.get()).isEqualTo(1);
+		assertThat(secondResult.getAuthorities()).extracting("authority")
+				.containsExactlyInAnyOrder("ROLE_user", "ROLE_admin");
+		assertThat(secondResult.getName()).isEqualTo("cliente");
+		assertThat(secondResult.getDetails()).isEqualTo("10.0.0.2");
+		assertThat(firstResult.getDetails()).isEqualTo("10.0.0.1");
+	}
+
+	@Test
+	void doesNotCacheTokensWithoutExpiry() {
+		CachingJwtAuthenticationManager manager = manager(token -> jwt(token, null));
+
+		manager.authenticate(bearer("a.b.c", null));
+		manager.authenticate(bearer("a.b.c", null));
+
+		assertThat(decodes.get()).isEqualTo(2);
+	}
+
+	@Test
+	void doesNotCacheRejectedTokens() {
+		CachingJwtAuthenticationManager manager = manager(token -> {
+			throw new BadJwtException("Firma inválida");
+		});
+
+		assertThatThrownBy(() -> manager.authenticate(bearer("x.y.z", null)))
+				.hasMessageContaining("Firma inválida");
+		assertThatThrownBy(() -> manager.authenticate(bearer("x.y.z", null)))
+				.hasMessageContaining("Firma inválida");
+		assertThat(decodes.get()).isEqualTo(2);
+	}
+
+	@Test
+	void doesNotServeCachedTokenBeforeNotBefore() {
+		// Decodificador que no valida nbf: el acierto de caché no debe saltárselo
+		CachingJwtAuthenticationManager manager = manager(token -> Jwt.withTokenValue(token)
+				.header("alg", "RS256")
+				.subject("cliente")
+				.notBefore(Instant.now().plusSeconds(600))
+				.expiresAt(Instant.now().plusSeconds(1200))
+				.build());
+
+		manager.authenticate(bearer("a.b.c", null));
+		manager.authenticate(bearer("a.b.c", null));
+
+		assertThat(decodes.get()).isEqualTo(2);
+	}
+
+	private CachingJwtAuthenticationManager manager(JwtDecoder decoder) {
+		JwtDecoder counting = token -> {
+			decodes.incrementAndGet();
+			return decoder.decode(token);
+		};
+		return new CachingJwtAuthenticationManager(counting, new SecurityConfig().jwtAuthenticationConverter(),
+				new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+	}
+
+	private static BearerTokenAuthenticationToken bearer(String token, Object details) {
+		BearerTokenAuthenticationToken bearer = new BearerTokenAuthenticationToken(token);
+		bearer.setDetails(details);
+		return bearer;
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		Instant issuedAt = Instant.now().minusSeconds(10);
+		return new Jwt(token, issuedAt, expiresAt, Map.of("alg", "RS256"), Map.of(
+				"sub", "cliente",
+				"realm_access", Map.of("roles", List.of("user")),
+				"resource_access", Map.of("backend-client", Map.of("roles", List.of("admin")))));
+	}
+}
@@ -0,0 +1,80 @@
+package com.patrones.api.service;
+
+import com.patrones.api.dto.CommentDTO;
+import com.patrones.api.entity.Product;
+import com.patrones.api.event.CommentsChangedEvent;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.repository.ProductRepository.ProductSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Una carga que se solapa con una invalidación devuelve su resultado pero
+ * no lo deja en caché.
+ */
+class CatalogCacheTest {
+
+	private final CatalogCache cache = new CatalogCache(new SimpleMeterRegistry(), 100, 100, Duration.ofMinutes(5));
+
+	@Test
+	void pageLoadedAcrossAnInvalidationIsNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.getPage(CatalogCache.ALL_PRODUCTS, () -> {
+			loads.incrementAndGet();
+			// El alta confirma mientras la consulta aún no la ve
+			cache.onProductCreated(new ProductCreatedEvent(new Product()));
+			return List.of();
+		});
+		cache.getPage(CatalogCache.ALL_PRODUCTS, () -> {
+			loads.incrementAndGet();
+			return List.<ProductSummary>of();
+		});
+		cache.getPage(CatalogCache.ALL_PRODUCTS, () -> {
+			loads.incrementAndGet();
+			return List.<ProductSummary>of();
+		});
+
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void commentsLoadedAcrossAnInvalidationAreNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.getComments(List.of(1L, 2L), ids -> {
+			loads.incrementAndGet();
+			cache.onCommentsChanged(new CommentsChangedEvent(1L));
+			return empty(ids);
+		});
+		assertThat(cache.getComments(List.of(1L, 2L), ids -> {
+			loads.incrementAndGet();
+			// Solo falta el producto invalidado
+			assertThat(ids).isEqualTo(Set.of(1L));
+			return empty(ids);
+		})).containsOnlyKeys(1L, 2L);
+		cache.getComments(List.of(1L, 2L), ids -> {
+			loads.incrementAndGet();
+			return empty(ids);
+		});
+
+		assertThat(loads).hasValue(2);
+	}
+
+	private static Map<Long, List<CommentDTO>> empty(Set<? extends Long> ids) {
+		Map<Long, List<CommentDTO>> values = new HashMap<>();
+		for (Long id : ids) {
+			values.put(id, List.of());
+		}
+		return values;
+	}
+}
@@ -0,0 +1,286 @@
+package com.patrones.api.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClamAvClientTest {
+
+	private static final String EICAR = "EICAR-STANDARD-ANTIVIRUS-TEST-FILE";
+
+	private FakeClamd clamd;
+	private ClamAvClient client;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		clamd = new FakeClamd();
+		client = new ClamAvClient("127.0.0.1", clamd.port(), 2, 1000, 2000, 10_000, 16, 2, 60_000);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		client.close();
+		clamd.close();
+	}
+
+	@Test
+	void reusesSessionAcrossScans() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			assertThat(client.scan(("imagen " + i).getBytes(StandardCharsets.US_ASCII))).isEqualTo("stream: OK");
+		}
+		assertThat(clamd.connections.get()).isEqualTo(1);
+		assertThat(clamd.instreams.get()).isEqualTo(5);
+	}
+
+	@Test
+	void reportsInfectedStream() throws IOException {
+		byte[] payload = ("prefijo largo para partir en varios chunks " + EICAR).getBytes(StandardCharsets.US_ASCII);
+		assertThat(client.scan(payload)).isEqualTo("stream: Eicar-Test-Signature FOUND");
+		assertThat(client.scan(new byte[0])).isEqualTo("stream: OK");
+	}
+
+	@Test
+	void onlyAnExactOkIsClean() {
+		assertThat(ClamAvClient.isClean("stream: OK")).isTrue();
+		assertThat(ClamAvClient.isClean("stream: Win.Trojan.OKBot FOUND")).isFalse();
+		assertThat(ClamAvClient.isClean("stream: OK-Signature FOUND")).isFalse();
+		assertThat(ClamAvClient.isClean("INSTREAM size limit exceeded. ERROR")).isFalse();
+		assertThat(ClamAvClient.isClean(null)).isFalse();
+	}
+
+	@Test
+	void reconnectsWhenServerDropsSession() throws IOException {
+		assertThat(client.scan(new byte[]{1, 2, 3})).isEqualTo("stream: OK");
+		clamd.dropSessions();
+
+		assertThat(client.scan(new byte[]{4, 5, 6})).isEqualTo("stream: OK");
+		assertThat(clamd.connections.get()).isEqualTo(2);
+	}
+
+	@Test
+	void reportsSignatureVersionWithoutDate() throws IOException {
+		assertThat(client.signatureVersion()).isEqualTo("ClamAV 1.0.5/27431");
+		assertThat(client.scan(new byte[]{1})).isEqualTo("stream: OK");
+		assertThat(clamd.connections.get()).isEqualTo(1);
+	}
+
+	@Test
+	void validatesIdleSessionsWithPing() throws IOException {
+		client.close();
+		client = new ClamAvClient("127.0.0.1", clamd.port(), 2, 1000, 2000, 0, 16, 2, 60_000);
+
+		client.scan(new byte[]{1});
+		client.scan(new byte[]{2});
+		assertThat(clamd.pings.get()).isEqualTo(1);
+		assertThat(clamd.connections.get()).isEqualTo(1);
+	}
+
+	@Test
+	void failsFastWhileCircuitIsOpen() throws IOException {
+		clamd.close();
+
+		assertThatThrownBy(() -> client.scan(new byte[]{1})).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> client.scan(new byte[]{1})).isInstanceOf(IOException.class);
+		assertThat(client.isUnavailable()).isTrue();
+		assertThatThrownBy(() -> client.scan(new byte[]{1})).isInstanceOf(ClamAvClient.UnavailableException.class);
+	}
+
+	@Test
+	void sourceFailureNeitherTripsCircuitNorRetries() throws IOException {
+		assertThat(client.scan(new byte[]{1})).isEqualTo("stream: OK");
+
+		// El fichero temporal del multipart desaparece a mitad de lectura
+		ClamAvClient.StreamSource vanishing = () -> new InputStream() {
+			private int served;
+
+			@Override
+			public int read() throws IOException {
+				if (served++ < 20) {
+					return 'x';
+				}
+				throw new IOException("fichero temporal eliminado");
+			}
+		};
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> client.scan(vanishing)).isInstanceOf(ClamAvClient.SourceException.class);
+		}
+		assertThat(client.isUnavailable()).isFalse();
+
+		assertThat(client.scan(new byte[]{2})).isEqualTo("stream: OK");
+		// Una conexión por escaneo (cada fallo cierra su sesión), ninguna extra para reintentar
+		assertThat(clamd.connections.get()).isEqualTo(4);
+	}
+
+	@Test
+	void readTimeoutOnReusedSessionIsNotRetried() throws IOException {
+		client.close();
+		client = new ClamAvClient("127.0.0.1", clamd.port(), 2, 1000, 200, 10_000, 16, 5, 60_000);
+		assertThat(client.scan(new byte[]{1})).isEqualTo("stream: OK");
+
+		clamd.replyDelayMs = 500;
+		assertThatThrownBy(() -> client.scan(new byte[]{2})).isInstanceOf(SocketTimeoutException.class);
+		assertThat(clamd.instreams.get()).isEqualTo(2);
+		assertThat(clamd.connections.get()).isEqualTo(1);
+	}
+
+	@Test
+	void capsConcurrentSessionsAtPoolSize() throws Exception {
+		clamd.replyDelayMs = 50;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return client.scan(new byte[64]);
+				}));
+			}
+			start.countDown();
+			for (Future<String> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("stream: OK");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(clamd.connections.get()).isLessThanOrEqualTo(2);
+	}
+
+	// -----------------------------
+	// clamd falso: IDSESSION, PING, VERSION, INSTREAM y END
+	// -----------------------------
+	private static final class FakeClamd implements AutoCloseable {
+
+		private final ServerSocket server = new ServerSocket(0);
+		private final List<Socket> sessions = new CopyOnWriteArrayList<>();
+		private final AtomicInteger connections = new AtomicInteger();
+		private final AtomicInteger instreams = new AtomicInteger();
+		private final AtomicInteger pings = new AtomicInteger();
+		private volatile long replyDelayMs;
+
+		FakeClamd() throws IOException {
+			Thread acceptor = new Thread(this::acceptLoop, "fake-clamd");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int port() {
+			return server.getLocalPort();
+		}
+
+		void dropSessions() throws IOException {
+			for (Socket socket : sessions) {
+				socket.close();
+			}
+			sessions.clear();
+		}
+
+		private void acceptLoop() {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					connections.incrementAndGet();
+					sessions.add(socket);
+					Thread handler = new Thread(() -> handle(socket), "fake-clamd-session");
+					handler.setDaemon(true);
+					handler.start();
+				} catch (IOException e) {
+					return;
+				}
+			}
+		}
+
+		private void handle(Socket socket) {
+			try (socket) {
+				DataInputStream in = new DataInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				if (!"zIDSESSION".equals(readCommand(in))) {
+					return;
+				}
+				int id = 0;
+				while (true) {
+					String command = readCommand(in);
+					id++;
+					switch (command) {
+						case "zPING" -> {
+							pings.incrementAndGet();
+							reply(out, id, "PONG");
+						}
+						case "zVERSION" -> reply(out, id, "ClamAV 1.0.5/27431/Tue Oct 14 08:23:01 2025");
+						case "zINSTREAM" -> {
+							String data = readStream(in);
+							instreams.incrementAndGet();
+							Thread.sleep(replyDelayMs);
+							reply(out, id, data.contains(EICAR)
+									? "stream: Eicar-Test-Signature FOUND"
+									: "stream: OK");
+						}
+						case "zEND" -> {
+							return;
+						}
+						default -> {
+							reply(out, id, "UNKNOWN COMMAND ERROR");
+							return;
+						}
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				// Sesión terminada por el cliente o por dropSessions()
+			}
+		}
+
+		private static String readCommand(DataInputStream in) throws IOException {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != 0) {
+				if (b == -1) {
+					throw new IOException("EOF");
+				}
+				buffer.write(b);
+			}
+			return buffer.toString(StandardCharsets.US_ASCII);
+		}
+
+		private static String readStream(DataInputStream in) throws IOException {
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			int length;
+			while ((length = in.readInt()) > 0) {
+				data.write(in.readNBytes(length));
+			}
+			return data.toString(StandardCharsets.US_ASCII);
+		}
+
+		private static void reply(OutputStream out, int id, String reply) throws IOException {
+			out.write((id + ": " + reply + "\0").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+			dropSessions();
+		}
+	}
+}
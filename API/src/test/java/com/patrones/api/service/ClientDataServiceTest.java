@@ -0,0 +1,166 @@
+package com.patrones.api.service;
+
+import com.patrones.api.entity.ClientData;
+import com.patrones.api.entity.ImageStatus;
+import com.patrones.api.repository.ClientDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * La subida de imagen de perfil en cuarentena se guarda desde el hilo virtual
+ * del escaneo (thenApply en ClientDataController), donde no hay transacción:
+ * el save y el encolado tienen que ir juntos en la de ClientDataService.
+ */
+@SpringJUnitConfig(ClientDataServiceTest.Config.class)
+class ClientDataServiceTest {
+
+	private static final String SHA = "a".repeat(64);
+
+	@Autowired
+	private ClientDataService service;
+
+	@Autowired
+	private ClientDataRepository clientDataRepository;
+
+	@Autowired
+	private ImageReferences imageReferences;
+
+	@Autowired
+	private ImageQuarantine imageQuarantine;
+
+	@Autowired
+	private RecordingTransactionManager transactionManager;
+
+	private final List<String> calls = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		reset(clientDataRepository, imageReferences, imageQuarantine);
+		transactionManager.begun = 0;
+		when(imageReferences.storeForTransaction(any())).thenReturn(SHA);
+		when(clientDataRepository.save(any())).thenAnswer(invocation -> {
+			calls.add("save:" + activeTransaction());
+			return invocation.getArgument(0);
+		});
+		doAnswer(invocation -> {
+			calls.add("enqueue:" + activeTransaction());
+			return null;
+		}).when(imageQuarantine).enqueue(anyString());
+	}
+
+	@Test
+	void quarantinedImageIsEnqueuedInTheSaveTransactionFromScanThread() throws Exception {
+		ClientData client = new ClientData();
+		client.setUid("cliente");
+
+		ExecutorService scanThreads = Executors.newVirtualThreadPerTaskExecutor();
+		try {
+			ClientData saved = CompletableFuture
+					.supplyAsync(() -> service.saveWithImage(client, new byte[]{1, 2, 3}, ImageStatus.PENDING_SCAN), scanThreads)
+					.get();
+
+			assertThat(saved.getImagenSha256()).isEqualTo(SHA);
+			assertThat(saved.getImagenStatus()).isEqualTo(ImageStatus.PENDING_SCAN);
+		} finally {
+			scanThreads.shutdown();
+		}
+
+		assertThat(calls).containsExactly("save:true", "enqueue:true");
+		assertThat(transactionManager.begun).isEqualTo(1);
+		verify(imageQuarantine).enqueue(SHA);
+	}
+
+	@Test
+	void cleanImageIsNotEnqueued() {
+		ClientData client = new ClientData();
+		client.setUid("cliente");
+
+		service.saveWithImage(client, new byte[]{1, 2, 3}, ImageStatus.CLEAN);
+
+		assertThat(client.getImagenStatus()).isEqualTo(ImageStatus.CLEAN);
+		verify(imageQuarantine, never()).enqueue(anyString());
+	}
+
+	private static boolean activeTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive();
+	}
+
+	static final class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+		volatile int begun;
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+			begun++;
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
+
+	@Configuration
+	@EnableTransactionManagement
+	static class Config {
+
+		@Bean
+		RecordingTransactionManager transactionManager() {
+			return new RecordingTransactionManager();
+		}
+
+		@Bean
+		ClientDataRepository clientDataRepository() {
+			return mock(ClientDataRepository.class);
+		}
+
+		@Bean
+		ImageReferences imageReferences() {
+			return mock(ImageReferences.class);
+		}
+
+		@Bean
+		ImageQuarantine imageQuarantine() {
+			return mock(ImageQuarantine.class);
+		}
+
+		@Bean
+		ClientDataService clientDataService(ClientDataRepository clientDataRepository, ImageReferences imageReferences,
+											ImageQuarantine imageQuarantine) {
+			return new ClientDataService(clientDataRepository, imageReferences, imageQuarantine);
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package com.patrones.api.service;
+
+import com.patrones.api.service.ImageHeaderParser.ImageHeader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ImageHeaderParserTest {
+
+	// -----------------------------
+	// PNG
+	// -----------------------------
+	@Test
+	void pngDimensionsFromIhdr() {
+		byte[] png = png(640, 480);
+
+		assertThat(ImageHeaderParser.parse(png, png.length)).isEqualTo(new ImageHeader("image/png", 640, 480));
+	}
+
+	@Test
+	void pngWrittenByImageIo() throws IOException {
+		byte[] png = encode(new BufferedImage(37, 21, BufferedImage.TYPE_INT_RGB), "png");
+
+		assertThat(ImageHeaderParser.parse(png, png.length)).isEqualTo(new ImageHeader("image/png", 37, 21));
+	}
+
+	@Test
+	void pngWithNegativeWidthIsRejected() {
+		byte[] png = png(0x80000000, 10);
+
+		assertThat(ImageHeaderParser.parse(png, png.length)).isNull();
+	}
+
+	@Test
+	void truncatedPngIsRejected() {
+		byte[] png = png(640, 480);
+
+		assertThat(ImageHeaderParser.parse(png, 20)).isNull();
+		assertThat(ImageHeaderParser.parse(png, 8)).isNull();
+	}
+
+	// -----------------------------
+	// JPEG
+	// -----------------------------
+	@Test
+	void jpegDimensionsFromSof() {
+		byte[] jpeg = jpeg(0, 1024, 768);
+
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length)).isEqualTo(new ImageHeader("image/jpeg", 1024, 768));
+	}
+
+	@Test
+	void jpegWrittenByImageIo() throws IOException {
+		byte[] jpeg = encode(new BufferedImage(53, 17, BufferedImage.TYPE_INT_RGB), "jpg");
+
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length)).isEqualTo(new ImageHeader("image/jpeg", 53, 17));
+	}
+
+	@Test
+	void jpegSofBehindLargeApp1() {
+		// EXIF de 60KB antes del SOF: cabe en la ventana de lectura de 128KB
+		byte[] jpeg = jpeg(60_000, 4000, 3000);
+
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length)).isEqualTo(new ImageHeader("image/jpeg", 4000, 3000));
+	}
+
+	@Test
+	void jpegSofOutsideTheWindowIsRejected() {
+		byte[] jpeg = jpeg(60_000, 4000, 3000);
+
+		assertThat(ImageHeaderParser.parse(jpeg, 30_000)).isNull();
+	}
+
+	@Test
+	void truncatedJpegSofIsRejected() {
+		byte[] jpeg = jpeg(0, 1024, 768);
+
+		// Corta dentro del segmento SOF, antes del ancho
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length - 5)).isNull();
+	}
+
+	@Test
+	void jpegWithoutSofBeforeScanIsRejected() {
+		byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xDA, 0x00, 0x08, 1, 2, 3, 4, 5, 6};
+
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length)).isNull();
+	}
+
+	@Test
+	void jpegWithBrokenSegmentLengthIsRejected() {
+		byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x01, 0, 0};
+
+		assertThat(ImageHeaderParser.parse(jpeg, jpeg.length)).isNull();
+	}
+
+	// -----------------------------
+	// WebP
+	// -----------------------------
+	@Test
+	void webpLossyDimensions() {
+		byte[] webp = webp("VP8 ");
+		webp[23] = (byte) 0x9D;
+		webp[24] = 0x01;
+		webp[25] = 0x2A;
+		le16(webp, 26, 800 | 0x4000); // Los 2 bits altos son la escala, no el ancho
+		le16(webp, 28, 600);
+
+		assertThat(ImageHeaderParser.parse(webp, webp.length)).isEqualTo(new ImageHeader("image/webp", 800, 600));
+	}
+
+	@Test
+	void webpLossyWithoutStartCodeIsRejected() {
+		byte[] webp = webp("VP8 ");
+
+		assertThat(ImageHeaderParser.parse(webp, webp.length)).isNull();
+	}
+
+	@Test
+	void webpLosslessDimensions() {
+		byte[] webp = webp("VP8L");
+		webp[20] = 0x2F;
+		int bits = (300 - 1) | (200 - 1) << 14;
+		webp[21] = (byte) bits;
+		webp[22] = (byte) (bits >>> 8);
+		webp[23] = (byte) (bits >>> 16);
+		webp[24] = (byte) (bits >>> 24);
+
+		assertThat(ImageHeaderParser.parse(webp, webp.length)).isEqualTo(new ImageHeader("image/webp", 300, 200));
+	}
+
+	@Test
+	void webpExtendedDimensions() {
+		byte[] webp = webp("VP8X");
+		le24(webp, 24, 16_000 - 1);
+		le24(webp, 27, 9_000 - 1);
+
+		assertThat(ImageHeaderParser.parse(webp, webp.length)).isEqualTo(new ImageHeader("image/webp", 16_000, 9_000));
+	}
+
+	@Test
+	void truncatedWebpIsRejected() {
+		byte[] webp = webp("VP8X");
+
+		assertThat(ImageHeaderParser.parse(webp, 29)).isNull();
+	}
+
+	@Test
+	void unknownFormatIsRejected() {
+		byte[] gif = "GIF89a\u0001\u0000\u0001\u0000".getBytes(StandardCharsets.ISO_8859_1);
+
+		assertThat(ImageHeaderParser.parse(gif, gif.length)).isNull();
+	}
+
+	// -----------------------------
+	// Uso en la validación (antes del antivirus)
+	// -----------------------------
+	@Test
+	void declaredTypeMustMatchContent() {
+		ClamAvClient clamAvClient = mock(ClamAvClient.class);
+
+		assertThatThrownBy(() -> validation(clamAvClient).validateImage("image/jpeg", png(640, 480)))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+		verifyNoInteractions(clamAvClient);
+	}
+
+	@Test
+	void oversizedDimensionsAreRejected() {
+		ClamAvClient clamAvClient = mock(ClamAvClient.class);
+
+		// Pocos bytes, pero declara 100000x100000: bomba de descompresión
+		assertThatThrownBy(() -> validation(clamAvClient).validateImage("image/png", png(100_000, 100_000)))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+		verifyNoInteractions(clamAvClient);
+	}
+
+	private static ImageValidationService validation(ClamAvClient clamAvClient) {
+		return new ImageValidationService(clamAvClient, mock(ScanVerdictCache.class), new SimpleMeterRegistry(),
+				4, 50, 8000, 40_000_000L, false);
+	}
+
+	// -----------------------------
+	// Cabeceras mínimas
+	// -----------------------------
+	private static byte[] png(int width, int height) {
+		byte[] png = new byte[33];
+		byte[] signature = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+		System.arraycopy(signature, 0, png, 0, signature.length);
+		be32(png, 8, 13);
+		png[12] = 'I';
+		png[13] = 'H';
+		png[14] = 'D';
+		png[15] = 'R';
+		be32(png, 16, width);
+		be32(png, 20, height);
+		png[24] = 8; // Profundidad de bits
+		png[25] = 2; // RGB
+		return png;
+	}
+
+	/**
+	 * SOI, un APP1 opcional de app1Length bytes de carga y un SOF0.
+	 */
+	private static byte[] jpeg(int app1Length, int width, int height) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xFF);
+		out.write(0xD8);
+		if (app1Length > 0) {
+			out.write(0xFF);
+			out.write(0xE1);
+			out.write((app1Length + 2) >>> 8);
+			out.write(app1Length + 2);
+			byte[] exif = new byte[app1Length];
+			Arrays.fill(exif, (byte) 0xFF); // Bytes que parecen marcadores: deben saltarse
+			out.writeBytes(exif);
+		}
+		// SOF0: longitud 11, precisión 8, alto, ancho, 1 componente
+		out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xC0, 0x00, 0x0B, 0x08,
+				(byte) (height >>> 8), (byte) height, (byte) (width >>> 8), (byte) width,
+				0x01, 0x01, 0x11, 0x00});
+		return out.toByteArray();
+	}
+
+	private static byte[] webp(String chunk) {
+		byte[] webp = new byte[40];
+		System.arraycopy("RIFF".getBytes(StandardCharsets.US_ASCII), 0, webp, 0, 4);
+		System.arraycopy("WEBP".getBytes(StandardCharsets.US_ASCII), 0, webp, 8, 4);
+		System.arraycopy(chunk.getBytes(StandardCharsets.US_ASCII), 0, webp, 12, 4);
+		return webp;
+	}
+
+	private static byte[] encode(BufferedImage image, String format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return out.toByteArray();
+	}
+
+	private static void be32(byte[] data, int pos, int value) {
+		data[pos] = (byte) (value >>> 24);
+		data[pos + 1] = (byte) (value >>> 16);
+		data[pos + 2] = (byte) (value >>> 8);
+		data[pos + 3] = (byte) value;
+	}
+
+	private static void le16(byte[] data, int pos, int value) {
+		data[pos] = (byte) value;
+		data[pos + 1] = (byte) (value >>> 8);
+	}
+
+	private static void le24(byte[] data, int pos, int value) {
+		le16(data, pos, value);
+		data[pos + 2] = (byte) (value >>> 16);
+	}
+}
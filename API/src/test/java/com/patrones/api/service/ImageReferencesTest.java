@@ -0,0 +1,93 @@
+package com.patrones.api.service;
+
+import com.patrones.api.repository.ClientDataRepository;
+import com.patrones.api.repository.ProductImageVariantRepository;
+import com.patrones.api.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Una subida que deduplica contra un hash que otra fila está liberando no
+ * debe quedarse con la referencia a un fichero borrado, y una subida cuya
+ * transacción no confirma no debe dejar el fichero huérfano.
+ */
+class ImageReferencesTest {
+
+	private static final byte[] DATA = {1, 2, 3};
+	private static final String SHA = ContentHash.sha256Hex(DATA);
+
+	private ImageStorage imageStorage;
+	private ImageReferences imageReferences;
+
+	@BeforeEach
+	void setUp() {
+		imageStorage = mock(ImageStorage.class);
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		TransactionStatus status = new SimpleTransactionStatus();
+		when(transactionManager.getTransaction(any())).thenReturn(status);
+
+		// Ninguna fila confirmada referencia el hash: solo lo protege la fijación
+		imageReferences = new ImageReferences(imageStorage, mock(ImageCache.class),
+				mock(ProductRepository.class), mock(ProductImageVariantRepository.class),
+				mock(ClientDataRepository.class), transactionManager);
+	}
+
+	@Test
+	void pinnedImageSurvivesConcurrentRelease() {
+		imageReferences.storePinned(DATA);
+
+		imageReferences.releaseAfterCommit(List.of(SHA));
+		verify(imageStorage, never()).delete(anyString());
+
+		imageReferences.unpin(List.of(SHA));
+		imageReferences.releaseAfterCommit(List.of(SHA));
+		verify(imageStorage).delete(SHA);
+	}
+
+	@Test
+	void rolledBackUploadIsReleased() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			imageReferences.storeForTransaction(DATA);
+			verify(imageStorage).put(SHA, DATA);
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		verify(imageStorage).delete(SHA);
+	}
+
+	@Test
+	void committedUploadIsKept() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			imageReferences.storeForTransaction(DATA);
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		verify(imageStorage, never()).delete(anyString());
+	}
+}
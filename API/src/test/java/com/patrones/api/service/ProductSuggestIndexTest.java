@@ -0,0 +1,124 @@
+package com.patrones.api.service;
+
+import com.patrones.api.dto.ProductSuggestionDTO;
+import com.patrones.api.entity.Product;
+import com.patrones.api.event.ProductCreatedEvent;
+import com.patrones.api.event.ProductDeletedEvent;
+import com.patrones.api.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tras altas y bajas los tops por nodo deben coincidir con una búsqueda por
+ * fuerza bruta sobre los productos vivos.
+ */
+class ProductSuggestIndexTest {
+
+	private static final String[] WORDS = {"arepa", "arroz", "ajiaco", "almojabana", "boyacense", "bocadillo", "a"};
+	private static final String[] PREFIXES = {"a", "ar", "are", "arepa ", "b", "bo", "boy", "al", "aj", "a a"};
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+	private final ProductSuggestIndex index = new ProductSuggestIndex(productRepository);
+	private final Map<Long, Product> live = new LinkedHashMap<>();
+
+	@Test
+	void suggestionsMatchBruteForceAfterDeletes() {
+		Random random = new Random(42);
+		LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+		for (long id = 1; id <= 300; id++) {
+			String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+			// Fechas repetidas a propósito: el desempate es por id
+			create(id, name, base.plusMinutes(random.nextInt(50)));
+		}
+
+		List<Long> ids = new ArrayList<>(live.keySet());
+		for (int i = 0; i < 250; i++) {
+			Long id = ids.remove(random.nextInt(ids.size()));
+			index.onProductDeleted(new ProductDeletedEvent(id));
+			live.remove(id);
+
+			for (String prefix : PREFIXES) {
+				assertThat(ids(index.suggest(prefix, ProductSuggestIndex.MAX_SUGGESTIONS)))
+						.as("prefijo '%s' tras borrar %d", prefix, id)
+						.isEqualTo(bruteForce(prefix));
+			}
+		}
+	}
+
+	@Test
+	void deletingTheNewestPromotesTheNextOne() {
+		LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+		for (long id = 1; id <= ProductSuggestIndex.MAX_SUGGESTIONS + 1; id++) {
+			create(id, "Arepa " + id, base.plusMinutes(id));
+		}
+
+		index.onProductDeleted(new ProductDeletedEvent((long) ProductSuggestIndex.MAX_SUGGESTIONS + 1));
+
+		assertThat(ids(index.suggest("are", ProductSuggestIndex.MAX_SUGGESTIONS)))
+				.hasSize(ProductSuggestIndex.MAX_SUGGESTIONS)
+				.startsWith(10L)
+				.endsWith(1L);
+	}
+
+	@Test
+	void productCreatedDuringRebuildIsKept() throws Exception {
+		Product product = new Product();
+		product.setId(1L);
+		product.setName("Arepa");
+		Thread creator = new Thread(() -> index.onProductCreated(new ProductCreatedEvent(product)));
+
+		// El alta confirma mientras rebuild lee la BD (que aún no la ve)
+		when(productRepository.findAllTextViews()).thenAnswer(invocation -> {
+			creator.start();
+			creator.join(200);
+			return List.of();
+		});
+		index.rebuild();
+		creator.join();
+
+		assertThat(ids(index.suggest("are", 10))).containsExactly(1L);
+	}
+
+	private void create(long id, String name, LocalDateTime createdAt) {
+		Product product = new Product();
+		product.setId(id);
+		product.setName(name);
+		product.setCreatedAt(createdAt);
+		index.onProductCreated(new ProductCreatedEvent(product));
+		live.put(id, product);
+	}
+
+	private List<Long> bruteForce(String prefix) {
+		String wanted = String.join(" ", TextNormalizer.tokenize(prefix)) + (prefix.endsWith(" ") ? " " : "");
+		return live.values().stream()
+				.filter(p -> matches(String.join(" ", TextNormalizer.tokenize(p.getName())), wanted))
+				.sorted(Comparator.comparing(Product::getCreatedAt).thenComparing(Product::getId).reversed())
+				.limit(ProductSuggestIndex.MAX_SUGGESTIONS)
+				.map(Product::getId)
+				.toList();
+	}
+
+	private static boolean matches(String key, String prefix) {
+		for (int i = 0; i < key.length(); i++) {
+			if ((i == 0 || key.charAt(i - 1) == ' ') && key.startsWith(prefix, i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<Long> ids(List<ProductSuggestionDTO> suggestions) {
+		return suggestions.stream().map(ProductSuggestionDTO::getId).toList();
+	}
+}
@@ -0,0 +1,58 @@
+package com.patrones.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanVerdictCacheTest {
+
+	private final ClamAvClient clamAvClient = mock(ClamAvClient.class);
+
+	private ScanVerdictCache cache(Duration versionRetry) {
+		return new ScanVerdictCache(clamAvClient, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1), versionRetry);
+	}
+
+	@Test
+	void failedVersionCheckIsNotRepeatedOnEveryScan() throws IOException {
+		when(clamAvClient.signatureVersion()).thenThrow(new IOException("timeout"));
+		ScanVerdictCache cache = cache(Duration.ofMinutes(1));
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(cache.key("a")).isNull();
+		}
+		verify(clamAvClient, times(1)).signatureVersion();
+	}
+
+	@Test
+	void versionIsRetriedAfterBackoff() throws IOException {
+		when(clamAvClient.signatureVersion())
+				.thenThrow(new IOException("timeout"))
+				.thenReturn("ClamAV 1.4.1/27400");
+		ScanVerdictCache cache = cache(Duration.ZERO);
+
+		assertThat(cache.key("a")).isNull();
+		assertThat(cache.key("a")).isEqualTo("ClamAV 1.4.1/27400|a");
+	}
+
+	@Test
+	void signatureUpdateDropsVerdicts() throws IOException {
+		when(clamAvClient.signatureVersion()).thenReturn("v1", "v2");
+		ScanVerdictCache cache = new ScanVerdictCache(clamAvClient, new SimpleMeterRegistry(), 100,
+				Duration.ZERO, Duration.ZERO);
+
+		String before = cache.key("a");
+		cache.markClean(before);
+		assertThat(cache.isClean(before)).isTrue();
+
+		assertThat(cache.key("a")).isEqualTo("v2|a");
+		assertThat(cache.isClean(before)).isFalse();
+	}
+}
@@ -0,0 +1,88 @@
+package com.patrones.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara SecurityService con la implementación anterior (LegacySecurityService)
+ * sobre un corpus fijo y sobre textos generados a partir de fragmentos que
+ * rozan los patrones.
+ */
+class SecurityServiceDifferentialTest {
+
+	private static final String[] CORPUS = {
+			"", "   ", "Camiseta básica", "  Zapatillas   de  running\t\ty\nmontaña  ",
+			"Precio 3/4 de \"oferta\"", "niño, ñandú, café — 100% algodón", "emoji 😀 ok",
+			"SELECT * FROM users", "select", "selection", "preselect", "éselect", "selectá", "_select",
+			"DROP TABLE products;", "truncate", "Truncated", "xp_cmdshell", "sp_", "sp_who", "SP_x",
+			"or 1=1", "OR 1 = 1", "x or 1=1", "xor 1=1", "or\t12  =  34", "or 1=", "or 12a=3", "and 0=0",
+			"and  5 =\n6", "1 or1=1", "sleep(5)", "WAITFOR DELAY '0:0:5'", "delay",
+			"a -- b", "# tag", "/* c */", "a*/b", "a;b", "a||b", "a&&b", "a&b", "it's", "%27", "%22", "%2",
+			"<script>alert(1)</script>", "<SCRIPT src=x>", "</script>", "<scriptx", "<script", "x<script y>",
+			"src='a'", "SRC\r\n=\n'a' 'b'", "src = 'a'", "src='", "srcsrc='x'", "img src=x",
+			"eval(x)", "eval(", "expression(1+1)", "EXPRESSION(", "javascript:void(0)", "JavaScript :",
+			"vbscript:msgbox", "onload=x", "onLoad x =", "onload", "onerror=alert", "onerrorx",
+			"<b>negrita</b>", "a < b", "a > b", "&amp;", "&copy; 2024", "Tom & Jerry", "&#39;", "&apos;",
+			"nbsp\u00A0here", "tab\u000Bvt", "nul\u0000char", "del\u007Fchar", "lone \uD83D surrogate",
+			"<!-- comentario -->", "<style>x</style>texto", "línea1\r\nlínea2", "a\fb", "ends with /",
+			"\"quoted\"", "//double", "a/*", "*/", "--", "---", "SeLeCt", "UNION ALL", "union_all",
+			"exec", "execute", "alter ego", "create", "created", "insert", "update", "delete",
+	};
+
+	private static final String[] FRAGMENTS = {
+			"a", "Z", "ñ", "é", "0", "12", " ", "  ", "\t", "\n", "\r", "\u000B", "_", "-", "/", "*",
+			"=", "(", ")", "<", ">", "'", "\"", "#", ";", "|", "&", "%", "27", "22", ":",
+			"select", "SELECT", "or", "OR", "and", "xp_", "sp_", "sleep", "drop", "script", "<script",
+			"</script>", "src", "eval", "eval(", "expression(", "javascript:", "vbscript:", "onload",
+			"onerror", "b", "<b>", "</b>", "&amp;", "\u00A0", "😀",
+	};
+
+	private final SecurityService service = new SecurityService();
+	private final LegacySecurityService legacy = new LegacySecurityService();
+
+	@Test
+	void matchesLegacyOnCorpus() {
+		for (String input : CORPUS) {
+			assertSame(input);
+		}
+	}
+
+	@Test
+	void matchesLegacyOnGeneratedInputs() {
+		Random random = new Random(20251017L);
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			StringBuilder input = new StringBuilder();
+			int parts = 1 + random.nextInt(8);
+			for (int p = 0; p < parts; p++) {
+				input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			inputs.add(input.toString());
+		}
+		for (String input : inputs) {
+			assertSame(input);
+		}
+	}
+
+	@Test
+	void classifyShortCircuitsOnFirstHit() {
+		assertThat(service.classify("plain text")).isEqualTo(SecurityService.Threat.NONE);
+		assertThat(service.classify("x; <script>")).isEqualTo(SecurityService.Threat.SQL_INJECTION);
+		assertThat(service.classify("javascript: DROP")).isEqualTo(SecurityService.Threat.XSS);
+		assertThat(service.classify(null)).isEqualTo(SecurityService.Threat.NONE);
+	}
+
+	private void assertSame(String input) {
+		assertThat(service.cleanInput(input)).as("cleanInput(%s)", input).isEqualTo(legacy.cleanInput(input));
+		boolean sql = legacy.hasSqlInjection(input);
+		boolean xss = legacy.hasXss(input);
+		assertThat(service.hasSqlInjection(input)).as("hasSqlInjection(%s)", input).isEqualTo(sql);
+		assertThat(service.hasXss(input)).as("hasXss(%s)", input).isEqualTo(xss);
+		assertThat(service.classify(input) != SecurityService.Threat.NONE).as("classify(%s)", input).isEqualTo(sql || xss);
+	}
+}
@@ -78,7 +78,7 @@ export default function DashboardAdmin() {
               const imageResponse = await fetch(
                 `${import.meta.env.VITE_API_URL}/api/products/${
                   product.id
-                }/image`,
+                }/image?size=card`,
                 {
                   headers: { Authorization: `Bearer ${token}`, Accept: "*/*" },
                   mode: "cors",
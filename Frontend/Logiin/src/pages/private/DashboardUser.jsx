@@ -105,7 +105,7 @@ export default function DashboardUser() {
               const imageResponse = await fetch(
                 `${import.meta.env.VITE_API_URL}/api/products/${
                   product.id
-                }/image`,
+                }/image?size=card`,
                 {
                   headers: { Authorization: `Bearer ${token}`, Accept: "*/*" },
                   mode: "cors",